@@ -0,0 +1,62 @@
+package io.mateusnere.swplanetapi.benchmark;
+
+import io.mateusnere.swplanetapi.domain.Planet;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Planet.equals usa EqualsBuilder.reflectionEquals; a comparação campo a campo serve de referência
+ * para o custo da reflexão
+ * */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlanetEqualsBenchmark {
+
+    private Planet planet;
+
+    private Planet same;
+
+    private Planet different;
+
+    @Setup
+    public void setUp() {
+        planet = new Planet(1L, "Tatooine", "arid", "desert");
+        same = new Planet(1L, "Tatooine", "arid", "desert");
+        different = new Planet(1L, "Tatooine", "arid", "jungle");
+    }
+
+    @Benchmark
+    public boolean reflectionEqualsSame() {
+        return planet.equals(same);
+    }
+
+    @Benchmark
+    public boolean reflectionEqualsDifferent() {
+        return planet.equals(different);
+    }
+
+    @Benchmark
+    public boolean fieldEqualsSame() {
+        return fieldEquals(planet, same);
+    }
+
+    @Benchmark
+    public boolean fieldEqualsDifferent() {
+        return fieldEquals(planet, different);
+    }
+
+    private static boolean fieldEquals(Planet a, Planet b) {
+        return Objects.equals(a.getId(), b.getId())
+                && Objects.equals(a.getName(), b.getName())
+                && Objects.equals(a.getClimate(), b.getClimate())
+                && Objects.equals(a.getTerrain(), b.getTerrain())
+                && Objects.equals(a.getVersion(), b.getVersion())
+                && Objects.equals(a.getUpdatedAt(), b.getUpdatedAt());
+    }
+}
@@ -0,0 +1,94 @@
+package io.mateusnere.swplanetapi.benchmark;
+
+import io.mateusnere.swplanetapi.SwPlanetApiApplication;
+import io.mateusnere.swplanetapi.domain.Planet;
+import io.mateusnere.swplanetapi.domain.PlanetFilter;
+import io.mateusnere.swplanetapi.domain.PlanetRepository;
+import io.mateusnere.swplanetapi.domain.PlanetView;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Consultas do PlanetRepository contra um H2 em memória, com a aplicação sem servidor web
+ * e a base semeada com "planets" planetas. findById/findByName carregam a entidade gerenciada;
+ * findViewById/findViewByName montam a projeção usada pelas rotas GET
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlanetRepositoryBenchmark {
+
+    private static final String[] CLIMATES = {"arid", "temperate", "tropical", "frozen", "murky"};
+    private static final String[] TERRAINS = {"desert", "grasslands", "mountains", "jungle", "ocean", "swamp"};
+
+    @Param({"10000"})
+    private int planets;
+
+    private ConfigurableApplicationContext context;
+
+    private PlanetRepository planetRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(SwPlanetApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--planets.tokens.backfill-on-startup=false",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN");
+        planetRepository = context.getBean(PlanetRepository.class);
+
+        List<Planet> seed = new ArrayList<>(planets);
+        for (int i = 1; i <= planets; i++) {
+            seed.add(new Planet("Planet " + i, CLIMATES[i % CLIMATES.length],
+                    TERRAINS[i % TERRAINS.length] + ", " + TERRAINS[(i / 7) % TERRAINS.length]));
+        }
+        planetRepository.insertAll(seed);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Planet> findById() {
+        return planetRepository.findById(randomId());
+    }
+
+    @Benchmark
+    public Optional<PlanetView> findViewById() {
+        return planetRepository.findViewById(randomId());
+    }
+
+    @Benchmark
+    public Optional<Planet> findByName() {
+        return planetRepository.findByName("Planet " + randomId());
+    }
+
+    @Benchmark
+    public Optional<PlanetView> findViewByName() {
+        return planetRepository.findViewByName("Planet " + randomId());
+    }
+
+    @Benchmark
+    public List<PlanetView> findPageByTokens() {
+        return planetRepository.findPage(PlanetFilter.of("temperate", "jungle"), null, 100);
+    }
+
+    private long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, planets + 1);
+    }
+}
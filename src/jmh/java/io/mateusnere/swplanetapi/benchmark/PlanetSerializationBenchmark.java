@@ -0,0 +1,74 @@
+package io.mateusnere.swplanetapi.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.mateusnere.swplanetapi.domain.Planet;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Serialização Jackson de um planeta (GET /planets/{id}) e de listas (GET /planets) com um ObjectMapper
+ * configurado como o do Spring Boot
+ * */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlanetSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+
+    private Planet planet;
+
+    private byte[] planetJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        planet = new Planet(1L, "Tatooine", "arid", "desert");
+        planetJson = objectMapper.writeValueAsBytes(planet);
+    }
+
+    @State(Scope.Thread)
+    public static class Planets {
+
+        @Param({"100", "1000", "10000"})
+        private int size;
+
+        private ObjectWriter writer;
+
+        private List<Planet> planets;
+
+        @Setup
+        public void setUp() {
+            ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+            writer = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Planet.class));
+            planets = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                planets.add(new Planet((long) i, "Planet " + i, "temperate, tropical", "jungle, rainforest"));
+            }
+        }
+    }
+
+    @Benchmark
+    public byte[] serializePlanet() throws IOException {
+        return objectMapper.writeValueAsBytes(planet);
+    }
+
+    @Benchmark
+    public Planet deserializePlanet() throws IOException {
+        return objectMapper.readValue(planetJson, Planet.class);
+    }
+
+    @Benchmark
+    public byte[] serializeList(Planets planets) throws IOException {
+        return planets.writer.writeValueAsBytes(planets.planets);
+    }
+}
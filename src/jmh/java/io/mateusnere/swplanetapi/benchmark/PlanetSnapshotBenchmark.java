@@ -0,0 +1,99 @@
+package io.mateusnere.swplanetapi.benchmark;
+
+import io.mateusnere.swplanetapi.SwPlanetApiApplication;
+import io.mateusnere.swplanetapi.domain.Planet;
+import io.mateusnere.swplanetapi.domain.PlanetFilter;
+import io.mateusnere.swplanetapi.domain.PlanetRepository;
+import io.mateusnere.swplanetapi.domain.PlanetSnapshotStore;
+import io.mateusnere.swplanetapi.domain.PlanetView;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Leituras pela foto em memória (PlanetSnapshotStore) contra as mesmas consultas do PlanetRepository num H2 em
+ * memória, sem cache nos dois lados. Com "-prof gc" aparece a alocação por leitura: na foto, só a resposta
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlanetSnapshotBenchmark {
+
+    private static final String[] CLIMATES = {"arid", "temperate", "tropical", "frozen", "murky"};
+
+    private static final PlanetFilter TEMPERATE = PlanetFilter.of("temperate", null);
+
+    @Param({"10000"})
+    private int planets;
+
+    private ConfigurableApplicationContext context;
+
+    private PlanetRepository planetRepository;
+
+    private PlanetSnapshotStore snapshot;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(SwPlanetApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:snapshot;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--planets.tokens.backfill-on-startup=false",
+                        "--planets.snapshot.enabled=true",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=OFF");
+        planetRepository = context.getBean(PlanetRepository.class);
+        snapshot = context.getBean(PlanetSnapshotStore.class);
+
+        List<Planet> seed = new ArrayList<>(planets);
+        for (int i = 1; i <= planets; i++) {
+            seed.add(new Planet("Planet " + i, CLIMATES[i % CLIMATES.length], "grasslands, mountains"));
+        }
+        planetRepository.insertAll(seed);
+        snapshot.load();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<PlanetView> getByNameRepository() {
+        return planetRepository.findViewByName(randomName());
+    }
+
+    @Benchmark
+    public Optional<PlanetView> getByNameSnapshot() {
+        return snapshot.getByName(randomName());
+    }
+
+    // Página de 100 planetas de um clima a partir de um ponto qualquer, como o GET /planets?climate=temperate
+    @Benchmark
+    public List<PlanetView> pageRepository() {
+        return planetRepository.findPage(TEMPERATE, randomAfter(), 100);
+    }
+
+    @Benchmark
+    public List<PlanetView> pageSnapshot() {
+        return snapshot.findPage(TEMPERATE, randomAfter(), 100);
+    }
+
+    private String randomName() {
+        return "Planet " + ThreadLocalRandom.current().nextInt(1, planets + 1);
+    }
+
+    private long randomAfter() {
+        return ThreadLocalRandom.current().nextInt(0, planets / 2);
+    }
+}
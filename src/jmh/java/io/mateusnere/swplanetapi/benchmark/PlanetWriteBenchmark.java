@@ -0,0 +1,143 @@
+package io.mateusnere.swplanetapi.benchmark;
+
+import io.mateusnere.swplanetapi.SwPlanetApiApplication;
+import io.mateusnere.swplanetapi.domain.Planet;
+import io.mateusnere.swplanetapi.domain.PlanetRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Escritas do PlanetRepository contra um H2 em memória: o caminho antigo (ler antes de gravar, ou descobrir o
+ * nome repetido pela violação de unique) contra uma instrução só. Cada operação roda numa transação, como no
+ * PlanetService. As remoções apagam um planeta criado antes de cada chamada (Removable, com Level.Invocation),
+ * então a criação não entra no tempo medido
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlanetWriteBenchmark {
+
+    private static final String[] CLIMATES = {"arid", "temperate", "tropical", "frozen", "murky"};
+
+    @Param({"10000"})
+    private int planets;
+
+    private ConfigurableApplicationContext context;
+
+    private PlanetRepository planetRepository;
+
+    private TransactionTemplate transactionTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(SwPlanetApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:writes;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--planets.tokens.backfill-on-startup=false",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=OFF");
+        planetRepository = context.getBean(PlanetRepository.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        List<Planet> seed = new ArrayList<>(planets);
+        for (int i = 1; i <= planets; i++) {
+            seed.add(new Planet("Planet " + i, "temperate", "grasslands, mountains"));
+        }
+        planetRepository.insertAll(seed);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    // Caminho antigo do DELETE: findById, o findById do deleteById e o DELETE
+    @Benchmark
+    public void removeFindThenDelete(Removable removable) {
+        long id = removable.id;
+        transactionTemplate.executeWithoutResult(status -> {
+            planetRepository.findById(id).orElseThrow(() -> new EmptyResultDataAccessException(1));
+            planetRepository.deleteById(id);
+            planetRepository.removeTokens(id);
+        });
+    }
+
+    @Benchmark
+    public void removeSingleDelete(Removable removable) {
+        long id = removable.id;
+        transactionTemplate.executeWithoutResult(status -> {
+            if (planetRepository.deleteByIdReturningCount(id) == 0) {
+                throw new EmptyResultDataAccessException(1);
+            }
+            planetRepository.removeTokens(id);
+        });
+    }
+
+    // Caminho antigo para um nome que já existe: o INSERT falha na unique e a transação volta
+    @Benchmark
+    public boolean createExistingName() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Planet created = planetRepository.save(new Planet(randomName(), "temperate", "grasslands, mountains"));
+                planetRepository.indexTokens(created);
+            });
+            return true;
+        } catch (DataIntegrityViolationException ex) {
+            return false;
+        }
+    }
+
+    // Atualizar lendo antes: a entidade é carregada, alterada e gravada pela verificação de mudanças do JPA
+    @Benchmark
+    public Planet updateFindThenSave() {
+        return transactionTemplate.execute(status -> {
+            Planet planet = planetRepository.findByName(randomName()).orElseThrow();
+            planet.setClimate(randomClimate());
+            planetRepository.removeTokens(planet.getId());
+            planetRepository.indexTokens(planet);
+            return planet;
+        });
+    }
+
+    @Benchmark
+    public boolean upsertExistingName() {
+        return planetRepository.upsertByName(new Planet(randomName(), randomClimate(), "grasslands, mountains"));
+    }
+
+    // Um clima diferente na maioria das chamadas, para a atualização do JPA não virar um "nada mudou"
+    private static String randomClimate() {
+        return CLIMATES[ThreadLocalRandom.current().nextInt(CLIMATES.length)];
+    }
+
+    private String randomName() {
+        return "Planet " + ThreadLocalRandom.current().nextInt(1, planets + 1);
+    }
+
+    @State(Scope.Thread)
+    public static class Removable {
+
+        private long id;
+
+        @Setup(Level.Invocation)
+        public void create(PlanetWriteBenchmark benchmark) {
+            Planet planet = new Planet("Removable " + System.nanoTime(), "arid", "desert");
+            benchmark.planetRepository.insertAll(List.of(planet));
+            id = planet.getId();
+        }
+    }
+}
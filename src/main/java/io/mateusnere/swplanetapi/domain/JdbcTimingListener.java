@@ -0,0 +1,62 @@
+package io.mateusnere.swplanetapi.domain;
+
+import org.hibernate.SessionEventListener;
+
+// Registrado no Hibernate (hibernate.session.events.auto) só quando o Server-Timing está ligado: soma na
+// requisição corrente o tempo de espera por conexão, de preparo e de execução dos comandos JDBC.
+// O Hibernate cria uma instância por sessão e as fases nunca se sobrepõem, então basta um instante de início
+public class JdbcTimingListener implements SessionEventListener {
+
+    private long started;
+
+    @Override
+    public void jdbcConnectionAcquisitionStart() {
+        phaseStart();
+    }
+
+    @Override
+    public void jdbcConnectionAcquisitionEnd() {
+        phaseEnd();
+    }
+
+    @Override
+    public void jdbcPrepareStatementStart() {
+        phaseStart();
+    }
+
+    @Override
+    public void jdbcPrepareStatementEnd() {
+        phaseEnd();
+    }
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        phaseStart();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        phaseEnd();
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        phaseStart();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        phaseEnd();
+    }
+
+    private void phaseStart() {
+        started = System.nanoTime();
+    }
+
+    private void phaseEnd() {
+        RequestTiming timing = RequestTiming.current();
+        if (timing != null) {
+            timing.addDb(System.nanoTime() - started);
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package io.mateusnere.swplanetapi.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.mateusnere.swplanetapi.jacoco.ExcludeFromJacocoGeneratedReport;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotEmpty;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 
+import java.time.Instant;
+
 @Entity
 @Table(name = "planets")
 public class Planet {
@@ -25,6 +28,16 @@ public class Planet {
     @Column(nullable = false)
     private String terrain;
 
+    // Versão e data da última alteração ficam fora do JSON; são usadas nos headers ETag e Last-Modified
+    @JsonIgnore
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0 not null")
+    private Long version;
+
+    @JsonIgnore
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
     public Planet() {
     }
 
@@ -78,6 +91,28 @@ public class Planet {
         this.terrain = terrain;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        updatedAt = Instant.now();
+    }
+
     @Override
     public boolean equals(Object obj) {
         return EqualsBuilder.reflectionEquals(obj, this);
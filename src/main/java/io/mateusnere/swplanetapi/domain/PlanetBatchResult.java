@@ -0,0 +1,21 @@
+package io.mateusnere.swplanetapi.domain;
+
+// Resultado de cada item de uma criação em lote, na mesma posição ("index") em que veio na requisição
+public record PlanetBatchResult(int index, Status status, Planet planet, String error) {
+
+    public enum Status {
+        CREATED, CONFLICT, INVALID
+    }
+
+    public static PlanetBatchResult created(int index, Planet planet) {
+        return new PlanetBatchResult(index, Status.CREATED, planet, null);
+    }
+
+    public static PlanetBatchResult conflict(int index, Planet planet) {
+        return new PlanetBatchResult(index, Status.CONFLICT, planet, "Já existe um planeta com o nome informado!");
+    }
+
+    public static PlanetBatchResult invalid(int index, Planet planet, String error) {
+        return new PlanetBatchResult(index, Status.INVALID, planet, error);
+    }
+}
@@ -0,0 +1,133 @@
+package io.mateusnere.swplanetapi.domain;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+// Cache em memória das buscas por id e por nome. Leituras não travam (Caffeine), o tamanho e o tempo de vida
+// são limitados e os contadores de acerto, falha e remoção são publicados como métricas (cache.gets, cache.evictions).
+// A busca por nome não diferencia maiúsculas, como a collation do MySQL: a chave é o nome em minúsculas
+@Component
+public class PlanetCache implements MeterBinder {
+
+    private final AsyncCache<Long, PlanetView> byId;
+
+    private final AsyncCache<String, PlanetView> byName;
+
+    // Nome de cada planeta carregado pelo nome, para a remoção só pelo id achar a entrada em byName sem
+    // percorrer o cache. Tem o mesmo tamanho e tempo de vida de byName
+    private final Cache<Long, String> namesById;
+
+    public PlanetCache(@Value("${planets.cache.maximum-size:10000}") long maximumSize,
+                       @Value("${planets.cache.ttl:10m}") Duration ttl) {
+        this.byId = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(ttl).recordStats().buildAsync();
+        this.byName = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(ttl).recordStats().buildAsync();
+        this.namesById = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(ttl).build();
+    }
+
+    // Só planetas encontrados ficam no cache; uma busca sem resultado sempre volta ao banco
+    public Optional<PlanetView> getById(Long id, Function<Long, Optional<PlanetView>> loader) {
+        return Optional.ofNullable(load(byId, id, loader));
+    }
+
+    public Optional<PlanetView> getByName(String name, Function<String, Optional<PlanetView>> loader) {
+        return Optional.ofNullable(load(byName, nameKey(name), key -> {
+            Optional<PlanetView> found = loader.apply(name);
+            found.filter(planet -> planet.id() != null).ifPresent(planet -> namesById.put(planet.id(), key));
+            return found;
+        }));
+    }
+
+    // Nome do planeta pelo que os caches já têm, sem ir ao banco (em minúsculas quando vem da busca por nome)
+    public Optional<String> nameOf(Long id) {
+        return peekById(id).map(PlanetView::name).or(() -> Optional.ofNullable(namesById.getIfPresent(id)));
+    }
+
+    // Só consulta o cache, sem carregar. Não há o contrário (guardar um planeta lido fora do getById/getByName):
+    // uma remoção entre a leitura e o put deixaria o planeta removido no cache
+    public Optional<PlanetView> peekById(Long id) {
+        return Optional.ofNullable(peek(byId, id));
+    }
+
+    public Optional<PlanetView> peekByName(String name) {
+        return Optional.ofNullable(peek(byName, nameKey(name)));
+    }
+
+    // Pela chave em minúsculas, o nome pedido em qualquer caixa (o do caminho no upsert) limpa a entrada. Sem o
+    // nome (uma remoção só pelo id), ele vem de namesById
+    public void evict(Planet planet) {
+        String name = planet.getName();
+        if (planet.getId() != null) {
+            byId.synchronous().invalidate(planet.getId());
+            if (name == null) {
+                name = namesById.getIfPresent(planet.getId());
+            }
+            namesById.invalidate(planet.getId());
+        }
+        if (name != null) {
+            byName.synchronous().invalidate(nameKey(name));
+        }
+    }
+
+    static String nameKey(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, byId, "planetsById");
+        CaffeineCacheMetrics.monitor(registry, byName, "planetsByName");
+    }
+
+    // Uma carga ainda em andamento ou com erro conta como ausente
+    private static <K> PlanetView peek(AsyncCache<K, PlanetView> cache, K key) {
+        CompletableFuture<PlanetView> cached = cache.getIfPresent(key);
+        if (cached == null || !cached.isDone() || cached.isCompletedExceptionally()) {
+            return null;
+        }
+        return cached.join();
+    }
+
+    // O mapa do cache só guarda a promessa do resultado; a consulta ao banco roda fora do lock do mapa,
+    // na própria thread da requisição. Bloquear no JDBC dentro de um synchronized prenderia a thread
+    // carregadora de uma virtual thread (pinning)
+    private static <K> PlanetView load(AsyncCache<K, PlanetView> cache, K key, Function<K, Optional<PlanetView>> loader) {
+        CompletableFuture<PlanetView> loading = new CompletableFuture<>();
+        CompletableFuture<PlanetView> cached = cache.get(key, (k, executor) -> loading);
+        if (cached == loading) {
+            try {
+                // Resultado nulo ou com erro é removido do cache pelo próprio Caffeine
+                loading.complete(loader.apply(key).orElse(null));
+            } catch (RuntimeException | Error ex) {
+                // Quem espera a mesma chave recebe o erro, e a próxima busca carrega de novo
+                cache.asMap().remove(key, loading);
+                loading.completeExceptionally(ex);
+                throw ex;
+            }
+        }
+
+        try {
+            return cached.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (ex.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package io.mateusnere.swplanetapi.domain;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+// Registro de alterações (outbox): uma linha por planeta criado ou removido, gravada na mesma transação da
+// escrita. Cada instância lê as linhas novas pelo id e invalida os próprios caches (PlanetChangeLog)
+@Entity
+@Table(name = "planet_changes", indexes = @Index(name = "idx_planet_changes_changed_at", columnList = "changed_at"))
+public class PlanetChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "planet_id", nullable = false)
+    private Long planetId;
+
+    private String name;
+
+    // Instância que fez a escrita; ela mesma já invalidou os caches depois do commit
+    @Column(nullable = false, length = 36)
+    private String origin;
+
+    @Column(name = "changed_at", nullable = false)
+    private Instant changedAt;
+
+    public PlanetChange() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getPlanetId() {
+        return planetId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public Instant getChangedAt() {
+        return changedAt;
+    }
+}
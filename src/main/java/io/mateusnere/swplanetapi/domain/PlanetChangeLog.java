@@ -0,0 +1,251 @@
+package io.mateusnere.swplanetapi.domain;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Invalidação dos caches entre instâncias pelo registro de alterações (planet_changes).
+// Cada escrita grava uma linha por planeta na própria transação; cada instância lê a cada "poll-interval" as
+// linhas com id maior que o último aplicado e remove do cache só os planetas alterados (por id e por nome).
+// As páginas não são apagadas: a versão da coleção muda e elas são refeitas na próxima leitura.
+// Com a PlanetSnapshotStore ligada, os planetas alterados são relidos do banco para a foto em memória.
+// Um id ainda não visível (transação mais antiga ainda aberta, ou desfeita) segura o cursor por até
+// "gap-timeout", e as linhas depois dele já são aplicadas. A defasagem fica limitada a um intervalo de leitura;
+// uma escrita que demore mais que o gap-timeout para confirmar depende do ttl do cache
+@Component
+public class PlanetChangeLog implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(PlanetChangeLog.class);
+
+    private static final String INSERT = "INSERT INTO planet_changes (planet_id, name, origin, changed_at) VALUES (?, ?, ?, ?)";
+
+    private static final String SELECT = "SELECT id, planet_id, name, origin FROM planet_changes WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final String SELECT_IDS = "SELECT id, planet_id, name, origin FROM planet_changes WHERE id IN (%s)";
+
+    private static final RowMapper<Change> CHANGE = (rs, row) -> new Change(
+            rs.getLong("id"), rs.getLong("planet_id"), rs.getString("name"), rs.getString("origin"));
+
+    private static final long PRUNE_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final String origin = UUID.randomUUID().toString();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final PlanetCache planetCache;
+
+    private final PlanetJsonCache jsonCache;
+
+    private final PlanetCollectionVersion collectionVersion;
+
+    private final Duration pollInterval;
+
+    private final long gapTimeoutNanos;
+
+    private final Duration retention;
+
+    private final int batchSize;
+
+    private final Counter evictions;
+
+    private final ObjectProvider<PlanetSnapshotStore> snapshots;
+
+    // Estado da leitura, só acessado pela thread de leitura
+    private long cursor;
+
+    // Maior id já lido; as próximas páginas começam dele
+    private long readUpTo;
+
+    // Ids já aplicados depois de um buraco no cursor
+    private final TreeSet<Long> applied = new TreeSet<>();
+
+    private long gapAt = -1;
+
+    private long gapSince;
+
+    private long lastPrune;
+
+    private volatile long lastPoll = System.nanoTime();
+
+    private ScheduledExecutorService executor;
+
+    public PlanetChangeLog(JdbcTemplate jdbcTemplate, PlanetCache planetCache, PlanetJsonCache jsonCache,
+                           PlanetCollectionVersion collectionVersion, MeterRegistry registry,
+                           ObjectProvider<PlanetSnapshotStore> snapshots,
+                           @Value("${planets.changes.poll-interval:500ms}") Duration pollInterval,
+                           @Value("${planets.changes.gap-timeout:10s}") Duration gapTimeout,
+                           @Value("${planets.changes.retention:1h}") Duration retention,
+                           @Value("${planets.changes.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.planetCache = planetCache;
+        this.jsonCache = jsonCache;
+        this.collectionVersion = collectionVersion;
+        this.pollInterval = pollInterval;
+        this.gapTimeoutNanos = gapTimeout.toNanos();
+        this.retention = retention;
+        this.batchSize = batchSize;
+        this.snapshots = snapshots;
+        this.evictions = Counter.builder("planets.changes.evictions")
+                .description("Planetas removidos do cache por escritas de outras instâncias")
+                .register(registry);
+        Gauge.builder("planets.changes.staleness", this, changeLog -> (System.nanoTime() - changeLog.lastPoll) / 1e9)
+                .description("Segundos desde a última leitura bem-sucedida do registro de alterações")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    // Chamado dentro da transação da escrita: a linha só fica visível para as outras instâncias com o commit
+    public void record(List<Planet> planets) {
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate(INSERT, planets, batchSize, (PreparedStatement ps, Planet planet) -> {
+            ps.setLong(1, planet.getId());
+            ps.setString(2, planet.getName());
+            ps.setString(3, origin);
+            ps.setTimestamp(4, now);
+        });
+    }
+
+    public void record(Planet planet) {
+        record(List.of(planet));
+    }
+
+    // Lê e aplica as alterações novas, página por página até a última vir incompleta; público para os testes
+    // não dependerem do intervalo. Os ids que faltam atrás do cursor são buscados pelo id, sem reler as linhas
+    // já aplicadas depois deles
+    public synchronized void poll() {
+        List<Long> missing = missing();
+        if (!missing.isEmpty()) {
+            String ids = String.join(",", Collections.nCopies(missing.size(), "?"));
+            apply(jdbcTemplate.query(SELECT_IDS.formatted(ids), CHANGE, missing.toArray()));
+        }
+
+        List<Change> page;
+        do {
+            page = jdbcTemplate.query(SELECT, CHANGE, Math.max(cursor, readUpTo), batchSize);
+            apply(page);
+            if (!page.isEmpty()) {
+                readUpTo = Math.max(readUpTo, page.getLast().id());
+            }
+        } while (page.size() == batchSize);
+
+        advance();
+        lastPoll = System.nanoTime();
+        prune();
+    }
+
+    private void apply(List<Change> changes) {
+        List<Long> remote = new ArrayList<>();
+        for (Change change : changes) {
+            if (change.id() > cursor && applied.add(change.id()) && !origin.equals(change.origin())) {
+                Planet planet = new Planet(change.planetId(), change.name(), null, null);
+                planetCache.evict(planet);
+                jsonCache.evict(planet);
+                evictions.increment();
+                remote.add(change.planetId());
+            }
+        }
+        if (!remote.isEmpty()) {
+            snapshots.ifAvailable(snapshot -> snapshot.refresh(remote));
+            collectionVersion.increment();
+        }
+    }
+
+    // Ids entre o cursor e a última linha lida que ainda não apareceram, até uma página
+    private List<Long> missing() {
+        List<Long> missing = new ArrayList<>();
+        for (long id = cursor + 1; id <= readUpTo && missing.size() < batchSize; id++) {
+            if (!applied.contains(id)) {
+                missing.add(id);
+            }
+        }
+        return missing;
+    }
+
+    private void advance() {
+        while (!applied.isEmpty() && applied.first() == cursor + 1) {
+            cursor = applied.pollFirst();
+        }
+        if (applied.isEmpty()) {
+            gapAt = -1;
+            return;
+        }
+
+        long now = System.nanoTime();
+        if (gapAt != cursor) {
+            gapAt = cursor;
+            gapSince = now;
+        } else if (now - gapSince >= gapTimeoutNanos) {
+            // Id que nunca vai aparecer (rollback ou incremento pulado): segue a partir da próxima linha lida
+            cursor = applied.first() - 1;
+            advance();
+        }
+    }
+
+    private void prune() {
+        long now = System.nanoTime();
+        if (now - lastPrune < PRUNE_INTERVAL_NANOS) {
+            return;
+        }
+        lastPrune = now;
+        jdbcTemplate.update("DELETE FROM planet_changes WHERE changed_at < ?", Timestamp.from(Instant.now().minus(retention)));
+    }
+
+    @Override
+    public synchronized void start() {
+        // As alterações de antes da subida não importam: os caches começam vazios
+        Long last = jdbcTemplate.queryForObject("SELECT MAX(id) FROM planet_changes", Long.class);
+        cursor = last != null ? last : 0;
+        readUpTo = cursor;
+        lastPrune = System.nanoTime();
+        lastPoll = System.nanoTime();
+        if (pollInterval.isZero()) {
+            return;
+        }
+
+        executor = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("planet-changes").daemon().factory());
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                poll();
+            } catch (RuntimeException ex) {
+                log.warn("Falha ao ler o registro de alterações: {}", ex.getMessage());
+            }
+        }, pollInterval.toMillis(), pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return executor != null;
+    }
+
+    private record Change(long id, long planetId, String name, String origin) {
+    }
+}
@@ -0,0 +1,25 @@
+package io.mateusnere.swplanetapi.domain;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Versão da coleção de planetas, incrementada a cada escrita feita por esta instância.
+// O instante de subida entra na versão para que instâncias diferentes nunca gerem o mesmo valor.
+// Não há data de alteração: o If-Modified-Since tem resolução de um segundo, e duas escritas no mesmo segundo
+// dariam um 304 com a página antiga. A coleção é validada só pelo ETag
+@Component
+public class PlanetCollectionVersion {
+
+    private final long epoch = System.currentTimeMillis();
+
+    private final AtomicLong changes = new AtomicLong();
+
+    public String current() {
+        return epoch + "-" + changes.get();
+    }
+
+    public void increment() {
+        changes.incrementAndGet();
+    }
+}
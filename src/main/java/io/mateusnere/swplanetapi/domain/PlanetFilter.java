@@ -0,0 +1,30 @@
+package io.mateusnere.swplanetapi.domain;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+// Filtro de listagem: o planeta precisa ter todos os termos de clima e todos os termos de terreno informados.
+// "temperate, tropical" vira {temperate, tropical}, sem diferenciar maiúsculas e minúsculas
+public record PlanetFilter(Set<String> climate, Set<String> terrain) {
+
+    public static PlanetFilter of(String climate, String terrain) {
+        return new PlanetFilter(tokenize(climate), tokenize(terrain));
+    }
+
+    public static Set<String> tokenize(String value) {
+        if (value == null) {
+            return Set.of();
+        }
+        return Arrays.stream(value.split(","))
+                .map(token -> token.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT))
+                .filter(token -> !token.isEmpty())
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    public boolean isEmpty() {
+        return climate.isEmpty() && terrain.isEmpty();
+    }
+}
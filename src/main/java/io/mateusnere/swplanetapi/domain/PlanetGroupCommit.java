@@ -0,0 +1,191 @@
+package io.mateusnere.swplanetapi.domain;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// Group commit do POST /planets: as criações simultâneas entram numa fila e uma única thread grava até
+// "max-batch" planetas numa transação (PlanetService.createAll), em vez de um commit por requisição.
+// O lote sai quando enche ou "max-delay" depois do primeiro planeta da fila. Cada requisição espera o próprio
+// resultado: o planeta com o id gerado, ou o conflito de nome só dela, por no máximo "timeout".
+// A fila não trava (ConcurrentLinkedQueue com um contador); cheia, a criação é recusada com WriteQueueFullException
+@Component
+@ConditionalOnProperty(name = "planets.group-commit.enabled", havingValue = "true")
+public class PlanetGroupCommit implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(PlanetGroupCommit.class);
+
+    private final PlanetService planetService;
+
+    private final int maxBatch;
+
+    private final long maxDelayNanos;
+
+    private final int capacity;
+
+    private final Duration timeout;
+
+    private final Queue<PendingCreate> queue = new ConcurrentLinkedQueue<>();
+
+    // Tamanho da fila, reservado antes de inserir para o limite valer com várias threads
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final DistributionSummary batchSizes;
+
+    private volatile boolean running;
+
+    private volatile Thread flusher;
+
+    public PlanetGroupCommit(PlanetService planetService, MeterRegistry registry,
+                             @Value("${planets.group-commit.max-batch:200}") int maxBatch,
+                             @Value("${planets.group-commit.max-delay:5ms}") Duration maxDelay,
+                             @Value("${planets.group-commit.queue-capacity:10000}") int capacity,
+                             @Value("${planets.group-commit.timeout:10s}") Duration timeout) {
+        this.planetService = planetService;
+        this.maxBatch = maxBatch;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.capacity = capacity;
+        this.timeout = timeout;
+        this.batchSizes = DistributionSummary.builder("planets.group-commit.batch.size")
+                .description("Planetas gravados por transação do group commit")
+                .register(registry);
+        Gauge.builder("planets.group-commit.queue.size", size, AtomicInteger::get)
+                .description("Criações esperando o próximo lote")
+                .register(registry);
+    }
+
+    public Planet create(Planet planet) {
+        if (!running) {
+            return planetService.create(planet);
+        }
+
+        int queued = size.incrementAndGet();
+        if (queued > capacity) {
+            size.decrementAndGet();
+            throw new WriteQueueFullException();
+        }
+        PendingCreate pending = new PendingCreate(planet, new CompletableFuture<>());
+        queue.add(pending);
+        // A thread de gravação dorme com a fila vazia e espera o lote encher no resto do tempo
+        if (queued == 1 || queued >= maxBatch) {
+            LockSupport.unpark(flusher);
+        }
+        // Parou entre a verificação e a inserção: a própria requisição grava o que sobrou
+        if (!running) {
+            flush();
+        }
+
+        try {
+            return pending.result().orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS).join();
+        } catch (CompletionException ex) {
+            // Sem resposta no prazo: o cliente tenta de novo como com a fila cheia. Se o lote já estava
+            // gravando, o planeta pode ter sido criado, e a nova tentativa recebe 409
+            if (ex.getCause() instanceof TimeoutException) {
+                throw new WriteQueueFullException();
+            }
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    public int queued() {
+        return size.get();
+    }
+
+    private void run() {
+        while (running || size.get() > 0) {
+            if (size.get() == 0) {
+                LockSupport.park(this);
+                continue;
+            }
+            if (size.get() < maxBatch && running) {
+                LockSupport.parkNanos(this, maxDelayNanos);
+            }
+            flush();
+        }
+    }
+
+    private void flush() {
+        List<PendingCreate> batch = new ArrayList<>(maxBatch);
+        PendingCreate pending;
+        int polled = 0;
+        while (polled < maxBatch && (pending = queue.poll()) != null) {
+            polled++;
+            // Quem desistiu por timeout ainda na fila não é gravado
+            if (!pending.result().isDone()) {
+                batch.add(pending);
+            }
+        }
+        size.addAndGet(-polled);
+        if (batch.isEmpty()) {
+            return;
+        }
+        batchSizes.record(batch.size());
+
+        try {
+            List<PlanetBatchResult> results = planetService.createAll(batch.stream().map(PendingCreate::planet).toList());
+            for (PlanetBatchResult result : results) {
+                CompletableFuture<Planet> future = batch.get(result.index()).result();
+                switch (result.status()) {
+                    case CREATED -> future.complete(result.planet());
+                    case CONFLICT -> future.completeExceptionally(new DataIntegrityViolationException(result.error()));
+                    case INVALID -> future.completeExceptionally(new IllegalArgumentException(result.error()));
+                }
+            }
+        } catch (Throwable ex) {
+            // Inclusive um Error: a thread de gravação segue viva e ninguém do lote fica esperando
+            log.error("Falha ao gravar um lote de {} planetas", batch.size(), ex);
+            batch.forEach(item -> item.result().completeExceptionally(ex));
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        flusher = Thread.ofPlatform().name("planet-group-commit").daemon().start(this::run);
+    }
+
+    // Grava o que já está na fila antes de parar; criações depois disso vão direto para o PlanetService
+    @Override
+    public void stop() {
+        running = false;
+        Thread thread = flusher;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private record PendingCreate(Planet planet, CompletableFuture<Planet> result) {
+    }
+}
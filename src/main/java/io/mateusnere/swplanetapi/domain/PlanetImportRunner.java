@@ -0,0 +1,30 @@
+package io.mateusnere.swplanetapi.domain;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+// Importação pela linha de comando: --planets.import.file=planets.json (ou .csv). Com
+// --spring.main.web-application-type=none a aplicação termina quando a importação acaba
+@Component
+@ConditionalOnProperty(name = "planets.import.file")
+public class PlanetImportRunner implements ApplicationRunner {
+
+    private final PlanetImporter importer;
+
+    private final Path file;
+
+    public PlanetImportRunner(PlanetImporter importer, @Value("${planets.import.file}") Path file) {
+        this.importer = importer;
+        this.file = file;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        importer.importFile(file);
+    }
+}
@@ -0,0 +1,233 @@
+package io.mateusnere.swplanetapi.domain;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+// Importa planetas de um arquivo local (array JSON ou CSV com cabeçalho, pela extensão) sem carregar o arquivo:
+// as linhas são lidas uma a uma e gravadas em lotes pelo PlanetService.createAll, com a mesma validação e o
+// mesmo tratamento de nomes repetidos da criação em lote. Os lotes são gravados em paralelo, cada um na sua
+// transação, e no máximo 2 lotes por thread ficam em memória; a leitura para enquanto não houver vaga.
+//
+// O checkpoint guarda quantas linhas do início do arquivo já estão gravadas (só avança quando todos os lotes
+// anteriores terminaram). Uma importação interrompida recomeça dali; os lotes gravados depois do checkpoint
+// voltam como conflitos. O checkpoint é apagado quando a importação termina
+@Component
+public class PlanetImporter {
+
+    private static final Logger log = LoggerFactory.getLogger(PlanetImporter.class);
+
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    public record Result(long rows, long created, long conflicts, long invalid, long resumedFrom, Duration elapsed) {
+
+        // Linhas lidas por segundo nesta execução (sem contar as puladas pelo checkpoint)
+        public double rowsPerSecond() {
+            long millis = Math.max(elapsed.toMillis(), 1);
+            return (rows - resumedFrom) * 1000.0 / millis;
+        }
+    }
+
+    private final PlanetService planetService;
+
+    private final ObjectReader jsonReader;
+
+    private final ObjectReader csvReader;
+
+    private final int batchSize;
+
+    private final int threads;
+
+    public PlanetImporter(PlanetService planetService,
+                          ObjectMapper objectMapper,
+                          @Value("${planets.import.batch-size:500}") int batchSize,
+                          @Value("${planets.import.threads:4}") int threads) {
+        this.planetService = planetService;
+        this.jsonReader = objectMapper.readerFor(Planet.class);
+        this.csvReader = CsvMapper.builder()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .enable(CsvParser.Feature.SKIP_EMPTY_LINES)
+                .build()
+                .readerFor(Planet.class)
+                .with(CsvSchema.emptySchema().withHeader());
+        this.batchSize = batchSize;
+        this.threads = threads;
+    }
+
+    public Result importFile(Path file) throws IOException {
+        return importFile(file, file.resolveSibling(file.getFileName() + ".checkpoint"));
+    }
+
+    public Result importFile(Path file, Path checkpoint) throws IOException {
+        long start = System.nanoTime();
+        long resumedFrom = readCheckpoint(checkpoint);
+        Progress progress = new Progress(checkpoint, resumedFrom, start);
+        Semaphore slots = new Semaphore(threads * 2);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, Thread.ofPlatform().name("planet-import-", 0).factory());
+
+        long row = 0;
+        try (InputStream input = Files.newInputStream(file);
+             MappingIterator<Planet> rows = reader(file).readValues(input)) {
+            while (row < resumedFrom && rows.hasNextValue()) {
+                rows.nextValue();
+                row++;
+            }
+
+            List<Planet> batch = new ArrayList<>(batchSize);
+            while (failure.get() == null && rows.hasNextValue()) {
+                batch.add(rows.nextValue());
+                row++;
+                if (batch.size() == batchSize || !rows.hasNextValue()) {
+                    slots.acquireUninterruptibly();
+                    List<Planet> planets = batch;
+                    long from = row - planets.size();
+                    long to = row;
+                    executor.execute(() -> {
+                        try {
+                            progress.completed(from, to, planetService.createAll(planets));
+                        } catch (Throwable ex) {
+                            failure.compareAndSet(null, ex);
+                        } finally {
+                            slots.release();
+                        }
+                    });
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+        } finally {
+            executor.shutdown();
+            awaitTermination(executor);
+        }
+
+        if (failure.get() != null) {
+            throw new IllegalStateException("Importação de " + file + " interrompida; retome a partir de "
+                    + checkpoint, failure.get());
+        }
+
+        Files.deleteIfExists(checkpoint);
+        Result result = progress.result(row);
+        log.info("{}: {} linhas, {} planetas criados, {} conflitos, {} inválidos em {} ms ({} linhas/s)", file,
+                result.rows(), result.created(), result.conflicts(), result.invalid(), result.elapsed().toMillis(),
+                String.format(Locale.ROOT, "%.0f", result.rowsPerSecond()));
+        return result;
+    }
+
+    private ObjectReader reader(Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv") ? csvReader : jsonReader;
+    }
+
+    private static long readCheckpoint(Path checkpoint) throws IOException {
+        if (!Files.exists(checkpoint)) {
+            return 0;
+        }
+        long rows = Long.parseLong(Files.readString(checkpoint).trim());
+        log.info("Retomando a importação a partir da linha {} ({})", rows, checkpoint);
+        return rows;
+    }
+
+    private static void awaitTermination(ExecutorService executor) {
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.info("Aguardando os lotes em andamento da importação");
+            }
+        } catch (InterruptedException ex) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Contadores e checkpoint, atualizados por todas as threads da importação
+    private static class Progress {
+
+        private final Path checkpoint;
+
+        private final long resumedFrom;
+
+        private final long start;
+
+        private final LongAdder created = new LongAdder();
+
+        private final LongAdder conflicts = new LongAdder();
+
+        private final LongAdder invalid = new LongAdder();
+
+        // Lotes já gravados que ainda não são contíguos ao checkpoint (início -> fim)
+        private final TreeMap<Long, Long> pending = new TreeMap<>();
+
+        private long committed;
+
+        private long lastLog;
+
+        Progress(Path checkpoint, long resumedFrom, long start) {
+            this.checkpoint = checkpoint;
+            this.resumedFrom = resumedFrom;
+            this.start = start;
+            this.committed = resumedFrom;
+            this.lastLog = start;
+        }
+
+        void completed(long from, long to, List<PlanetBatchResult> results) throws IOException {
+            for (PlanetBatchResult result : results) {
+                switch (result.status()) {
+                    case CREATED -> created.increment();
+                    case CONFLICT -> conflicts.increment();
+                    case INVALID -> invalid.increment();
+                }
+            }
+
+            synchronized (this) {
+                pending.put(from, to);
+                Long end;
+                while ((end = pending.remove(committed)) != null) {
+                    committed = end;
+                }
+                writeCheckpoint(committed);
+
+                long now = System.nanoTime();
+                if (now - lastLog >= PROGRESS_INTERVAL_NANOS) {
+                    lastLog = now;
+                    log.info("{} linhas importadas ({} linhas/s)", committed, String.format(Locale.ROOT, "%.0f",
+                            (committed - resumedFrom) * 1e9 / (now - start)));
+                }
+            }
+        }
+
+        // Grava num arquivo temporário e troca de uma vez, para uma queda no meio não deixar o checkpoint pela metade
+        private void writeCheckpoint(long rows) throws IOException {
+            Path temporary = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+            Files.writeString(temporary, Long.toString(rows));
+            Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        Result result(long rows) {
+            return new Result(rows, created.sum(), conflicts.sum(), invalid.sum(), resumedFrom,
+                    Duration.ofNanos(System.nanoTime() - start));
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package io.mateusnere.swplanetapi.domain;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+// JSON já serializado (UTF-8) de cada planeta e das páginas do list, para as rotas GET escreverem os bytes
+// direto na resposta em vez de rodar o Jackson a cada requisição.
+// O planeta é conferido pela versão e a página pela versão da coleção, então uma entrada de antes de uma
+// escrita nunca é servida; o PlanetService ainda remove as entradas depois de cada create e remove.
+// Os limites são em bytes, e o Caffeine mantém as páginas mais pedidas quando o espaço acaba
+@Component
+public class PlanetJsonCache implements MeterBinder {
+
+    private final ObjectWriter planetWriter;
+
+    private final ObjectWriter listWriter;
+
+    private final PlanetCollectionVersion collectionVersion;
+
+    private final Cache<Long, EncodedPlanet> planets;
+
+    private final Cache<PageKey, EncodedPage> pages;
+
+    public PlanetJsonCache(ObjectMapper objectMapper, PlanetCollectionVersion collectionVersion,
+                           @Value("${planets.json-cache.planets-max-size:16MB}") DataSize planetsMaxSize,
+                           @Value("${planets.json-cache.pages-max-size:32MB}") DataSize pagesMaxSize) {
+        this.planetWriter = objectMapper.writerFor(PlanetView.class);
+        this.listWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, PlanetView.class));
+        this.collectionVersion = collectionVersion;
+        this.planets = Caffeine.newBuilder()
+                .maximumWeight(planetsMaxSize.toBytes())
+                .<Long, EncodedPlanet>weigher((id, planet) -> planet.json().length)
+                .recordStats()
+                .build();
+        this.pages = Caffeine.newBuilder()
+                .maximumWeight(pagesMaxSize.toBytes())
+                // A página guarda também os planetas (para os formatos binários), que ocupam mais ou menos o mesmo que o JSON
+                .<PageKey, EncodedPage>weigher((key, page) -> page.json().length * 2)
+                .recordStats()
+                .build();
+    }
+
+    public byte[] planet(PlanetView planet) {
+        EncodedPlanet cached = planets.getIfPresent(planet.id());
+        if (cached != null && Objects.equals(cached.version(), planet.version())) {
+            return cached.json();
+        }
+
+        byte[] json = encode(planetWriter, planet);
+        planets.put(planet.id(), new EncodedPlanet(planet.version(), json));
+        return json;
+    }
+
+    // A versão da coleção é lida antes da consulta: se uma escrita acontecer no meio, a página guardada já
+    // nasce desatualizada e é refeita na próxima leitura
+    public EncodedPage page(String climate, String terrain, Long after, int limit, Supplier<PlanetPage> loader) {
+        PageKey key = new PageKey(PlanetFilter.of(climate, terrain), after, Math.clamp(limit, 1, PlanetService.MAX_PAGE_SIZE));
+        String version = collectionVersion.current();
+
+        EncodedPage cached = pages.getIfPresent(key);
+        if (cached != null && cached.collectionVersion().equals(version)) {
+            return cached;
+        }
+
+        PlanetPage page = loader.get();
+        EncodedPage encoded = new EncodedPage(encode(listWriter, page.planets()), page.planets(), page.next(), version);
+        pages.put(key, encoded);
+        return encoded;
+    }
+
+    public void evict(Planet planet) {
+        if (planet.getId() != null) {
+            planets.invalidate(planet.getId());
+        }
+    }
+
+    public void evictPages() {
+        pages.invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, planets, "planetsJson");
+        CaffeineCacheMetrics.monitor(registry, pages, "planetPagesJson");
+    }
+
+    private static byte[] encode(ObjectWriter writer, Object value) {
+        long start = System.nanoTime();
+        try {
+            return writer.writeValueAsBytes(value);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Falha ao serializar planetas", ex);
+        } finally {
+            RequestTiming timing = RequestTiming.current();
+            if (timing != null) {
+                timing.addSerialization(System.nanoTime() - start);
+            }
+        }
+    }
+
+    private record EncodedPlanet(Long version, byte[] json) {
+    }
+
+    private record PageKey(PlanetFilter filter, Long after, int limit) {
+    }
+
+    // "next" é o id do último planeta da página, como em PlanetPage
+    public record EncodedPage(byte[] json, List<PlanetView> planets, Long next, String collectionVersion) {
+    }
+}
@@ -0,0 +1,8 @@
+package io.mateusnere.swplanetapi.domain;
+
+import java.util.List;
+
+// Resultado de uma busca de vários planetas: os encontrados na ordem pedida (ids primeiro, depois nomes),
+// sem repetir um planeta pedido mais de uma vez, e as chaves que não existem
+public record PlanetLookup(List<PlanetView> planets, List<Long> missingIds, List<String> missingNames) {
+}
@@ -0,0 +1,87 @@
+package io.mateusnere.swplanetapi.domain;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Métricas das operações de planetas: um timer com histograma por operação (planets.operation), contadores
+// por resultado (planets.outcome) e o tamanho dos resultados do list (planets.list.size).
+// Os medidores são criados uma vez e reaproveitados, então registrar uma medição não consulta o registry
+@Component
+public class PlanetMetrics {
+
+    public enum Operation {
+        CREATE, CREATE_ALL, UPSERT, GET_BY_ID, GET_BY_NAME, LOOKUP, LIST, STREAM, REMOVE;
+
+        private final String tag = name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    // Os mesmos casos que o GeneralExceptionHandler transforma em status HTTP, mais os de sucesso
+    public enum Outcome {
+        CREATED, UPDATED, HIT, NOT_FOUND, LISTED, REMOVED, CONFLICT, INVALID, BAD_REQUEST, UNAVAILABLE;
+
+        private final String tag = name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    private final Map<Operation, Timer> timers = new EnumMap<>(Operation.class);
+
+    private final Counter[][] outcomes = new Counter[Operation.values().length][Outcome.values().length];
+
+    private final DistributionSummary listSize;
+
+    private final AtomicInteger lastListSize = new AtomicInteger();
+
+    public PlanetMetrics(MeterRegistry registry) {
+        for (Operation operation : Operation.values()) {
+            timers.put(operation, Timer.builder("planets.operation")
+                    .description("Tempo de cada operação do PlanetService")
+                    .tag("operation", operation.tag)
+                    .publishPercentileHistogram()
+                    .register(registry));
+            for (Outcome outcome : Outcome.values()) {
+                outcomes[operation.ordinal()][outcome.ordinal()] = Counter.builder("planets.outcome")
+                        .description("Resultado de cada operação de planetas")
+                        .tag("operation", operation.tag)
+                        .tag("outcome", outcome.tag)
+                        .register(registry);
+            }
+        }
+        listSize = DistributionSummary.builder("planets.list.size")
+                .description("Planetas devolvidos por página do list")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue((double) PlanetService.MAX_PAGE_SIZE)
+                .register(registry);
+        Gauge.builder("planets.list.last.size", lastListSize, AtomicInteger::get)
+                .description("Planetas devolvidos pela última página do list")
+                .register(registry);
+    }
+
+    public Timer timer(Operation operation) {
+        return timers.get(operation);
+    }
+
+    public void outcome(Operation operation, Outcome outcome) {
+        outcomes[operation.ordinal()][outcome.ordinal()].increment();
+    }
+
+    public void outcome(Operation operation, Outcome outcome, long amount) {
+        if (amount > 0) {
+            outcomes[operation.ordinal()][outcome.ordinal()].increment(amount);
+        }
+    }
+
+    public void listed(int size) {
+        outcome(Operation.LIST, Outcome.LISTED);
+        listSize.record(size);
+        lastListSize.set(size);
+    }
+}
@@ -0,0 +1,7 @@
+package io.mateusnere.swplanetapi.domain;
+
+import java.util.List;
+
+// "next" é o id do último planeta da página, ou null quando não há próxima página
+public record PlanetPage(List<PlanetView> planets, Long next) {
+}
@@ -1,10 +1,46 @@
 package io.mateusnere.swplanetapi.domain;
 
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
-import org.springframework.data.repository.query.QueryByExampleExecutor;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+
+public interface PlanetRepository extends CrudRepository<Planet, Long>, PlanetRepositoryCustom {
+
+    String SELECT_VIEW = "select new io.mateusnere.swplanetapi.domain.PlanetView(p.id, p.name, p.climate, p.terrain, p.version, p.updatedAt) from Planet p";
 
-public interface PlanetRepository extends CrudRepository<Planet, Long>, QueryByExampleExecutor<Planet> {
     Optional<Planet> findByName(String name);
+
+    // Leituras das rotas GET: projeção em vez de entidade, numa transação somente leitura
+    @Transactional(readOnly = true)
+    @Query(SELECT_VIEW + " where p.id = :id")
+    Optional<PlanetView> findViewById(Long id);
+
+    @Transactional(readOnly = true)
+    @Query(SELECT_VIEW + " where p.name = :name")
+    Optional<PlanetView> findViewByName(String name);
+
+    // Busca de vários planetas de uma vez (lookup); o PlanetService divide as chaves em blocos
+    @Transactional(readOnly = true)
+    @Query(SELECT_VIEW + " where p.id in :ids")
+    List<PlanetView> findViewsByIdIn(Collection<Long> ids);
+
+    @Transactional(readOnly = true)
+    @Query(SELECT_VIEW + " where p.name in :names")
+    List<PlanetView> findViewsByNameIn(Collection<String> names);
+
+    @Query("select p.name from Planet p where p.name in :names")
+    Set<String> findExistingNames(Collection<String> names);
+
+    // Remoção numa ida ao banco, sem carregar o planeta antes (o deleteById do CrudRepository faz um findById).
+    // Retorna as linhas apagadas: zero quando o planeta não existe
+    @Transactional
+    @Modifying
+    @Query("delete from Planet p where p.id = :id")
+    int deleteByIdReturningCount(Long id);
 }
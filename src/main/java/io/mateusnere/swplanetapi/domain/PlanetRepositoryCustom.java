@@ -0,0 +1,33 @@
+package io.mateusnere.swplanetapi.domain;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface PlanetRepositoryCustom {
+
+    // Paginação por keyset: busca até "limit" planetas do filtro com id maior que "after", ordenados por id
+    List<PlanetView> findPage(PlanetFilter filter, Long after, int limit);
+
+    // Lê os planetas do filtro sob demanda, como projeções fora do contexto de persistência.
+    // Precisa ser consumido (e fechado) dentro de uma transação
+    Stream<PlanetView> streamAll(PlanetFilter filter);
+
+    long count(PlanetFilter filter);
+
+    // Insere todos os planetas em lotes JDBC numa única transação e preenche os ids gerados.
+    // Grava também os termos e o registro de alterações de cada planeta
+    List<Planet> insertAll(List<Planet> planets);
+
+    // Cria ou atualiza o planeta com esse nome numa única instrução do banco, sem ler antes. Preenche o id e a
+    // data de alteração do planeta, refaz os termos e retorna true quando o planeta foi criado
+    boolean upsertByName(Planet planet);
+
+    // Mantém o índice de termos (planet_tokens) de um planeta já salvo, na transação de quem chama (sem uma
+    // transação aberta, IllegalTransactionStateException)
+    void indexTokens(Planet planet);
+
+    void removeTokens(Long planetId);
+
+    // Indexa os planetas que ainda não têm termos (por exemplo, criados antes do índice existir)
+    int indexMissingTokens();
+}
@@ -0,0 +1,292 @@
+package io.mateusnere.swplanetapi.domain;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.AbstractQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+public class PlanetRepositoryCustomImpl implements PlanetRepositoryCustom {
+
+    private static final String INSERT_TOKEN = "INSERT INTO planet_tokens (attribute, token, planet_id) VALUES (?, ?, ?)";
+
+    // O LAST_INSERT_ID(id) faz o driver devolver como chave gerada o id da linha que já existia
+    private static final String UPSERT_MYSQL = """
+            INSERT INTO planets (name, climate, terrain, version, updated_at) VALUES (?, ?, ?, 0, ?)
+            ON DUPLICATE KEY UPDATE id = LAST_INSERT_ID(id), climate = VALUES(climate), terrain = VALUES(terrain),
+                version = version + 1, updated_at = VALUES(updated_at)""";
+
+    // O H2 não tem ON DUPLICATE KEY UPDATE fora do modo MySQL; o MERGE dentro de um FINAL TABLE devolve a
+    // linha gravada na mesma instrução
+    private static final String UPSERT_H2 = """
+            SELECT id, version FROM FINAL TABLE (
+                MERGE INTO planets p
+                USING (VALUES (CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(255)),
+                               CAST(? AS TIMESTAMP(6) WITH TIME ZONE))) s (name, climate, terrain, updated_at)
+                ON p.name = s.name
+                WHEN MATCHED THEN UPDATE SET climate = s.climate, terrain = s.terrain, version = p.version + 1,
+                    updated_at = s.updated_at
+                WHEN NOT MATCHED THEN INSERT (name, climate, terrain, version, updated_at)
+                    VALUES (s.name, s.climate, s.terrain, 0, s.updated_at))""";
+
+    private final EntityManager entityManager;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final int streamFetchSize;
+
+    private final int batchSize;
+
+    // Ausente nos testes só de JPA (@DataJpaTest)
+    private final ObjectProvider<PlanetChangeLog> changeLog;
+
+    // Descoberto na primeira gravação pelo nome: MySQL (e MariaDB) em produção, H2 nos testes
+    private volatile Boolean mysql;
+
+    public PlanetRepositoryCustomImpl(EntityManager entityManager,
+                                      JdbcTemplate jdbcTemplate,
+                                      ObjectProvider<PlanetChangeLog> changeLog,
+                                      @Value("${planets.stream.fetch-size:500}") int streamFetchSize,
+                                      @Value("${planets.batch.size:500}") int batchSize) {
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamFetchSize = streamFetchSize;
+        this.batchSize = batchSize;
+        this.changeLog = changeLog;
+    }
+
+    // Sem fetch size aqui: com useCursorFetch=true ele faria o MySQL abrir um cursor no servidor para uma
+    // página que já vem inteira numa ida ao banco
+    @Override
+    @Transactional(readOnly = true)
+    public List<PlanetView> findPage(PlanetFilter filter, Long after, int limit) {
+        // O "id > after" faz páginas profundas usarem o índice da chave primária como a primeira página
+        return entityManager.createQuery(makeCriteria(filter, after))
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public Stream<PlanetView> streamAll(PlanetFilter filter) {
+        // O fetch size faz o driver trazer as linhas em blocos em vez de carregar o resultado inteiro
+        // (no MySQL depende do useCursorFetch=true na URL de conexão)
+        return entityManager.createQuery(makeCriteria(filter, null))
+                .setHint(HibernateHints.HINT_FETCH_SIZE, streamFetchSize)
+                .getResultStream();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long count(PlanetFilter filter) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Planet> root = query.from(Planet.class);
+
+        query.select(cb.count(root)).where(makePredicates(query, cb, root, filter, null));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    // O Hibernate desliga o batching de INSERT quando o id é IDENTITY, então o lote vai direto pelo JDBC.
+    // Com rewriteBatchedStatements=true o driver do MySQL transforma cada lote num INSERT de várias linhas.
+    // Os termos e o registro de alterações (planet_changes) entram na mesma transação
+    @Override
+    @Transactional
+    public List<Planet> insertAll(List<Planet> planets) {
+        Instant now = Instant.now();
+        for (int from = 0; from < planets.size(); from += batchSize) {
+            List<Planet> batch = planets.subList(from, Math.min(from + batchSize, planets.size()));
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+
+            jdbcTemplate.batchUpdate(
+                    connection -> connection.prepareStatement(
+                            "INSERT INTO planets (name, climate, terrain, version, updated_at) VALUES (?, ?, ?, 0, ?)",
+                            Statement.RETURN_GENERATED_KEYS),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            Planet planet = batch.get(i);
+                            planet.setVersion(0L);
+                            planet.setUpdatedAt(now);
+                            ps.setString(1, planet.getName());
+                            ps.setString(2, planet.getClimate());
+                            ps.setString(3, planet.getTerrain());
+                            ps.setTimestamp(4, Timestamp.from(now));
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return batch.size();
+                        }
+                    },
+                    keyHolder);
+
+            List<Map<String, Object>> keys = keyHolder.getKeyList();
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).setId(((Number) keys.get(i).values().iterator().next()).longValue());
+            }
+            insertTokens(batch);
+            changeLog.ifAvailable(log -> log.record(batch));
+        }
+        return planets;
+    }
+
+    // Os termos de um planeta que já existia são refeitos na mesma transação
+    @Override
+    @Transactional
+    public boolean upsertByName(Planet planet) {
+        Instant now = Instant.now();
+        boolean created;
+        if (isMySql()) {
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            // Uma linha afetada é inserção e duas são atualização (a versão sempre muda)
+            int affected = jdbcTemplate.update(connection -> {
+                PreparedStatement ps = connection.prepareStatement(UPSERT_MYSQL, Statement.RETURN_GENERATED_KEYS);
+                ps.setString(1, planet.getName());
+                ps.setString(2, planet.getClimate());
+                ps.setString(3, planet.getTerrain());
+                ps.setTimestamp(4, Timestamp.from(now));
+                return ps;
+            }, keyHolder);
+            created = affected == 1;
+            // Na atualização o Connector/J devolve uma chave por linha afetada; a primeira é o id do planeta
+            planet.setId(((Number) keyHolder.getKeyList().getFirst().values().iterator().next()).longValue());
+        } else {
+            created = Boolean.TRUE.equals(jdbcTemplate.queryForObject(UPSERT_H2, (rs, rowNum) -> {
+                planet.setId(rs.getLong("id"));
+                return rs.getLong("version") == 0;
+            }, planet.getName(), planet.getClimate(), planet.getTerrain(), Timestamp.from(now)));
+        }
+        // A versão de uma atualização não volta do MySQL; fica nula em vez de errada
+        planet.setVersion(created ? 0L : null);
+        planet.setUpdatedAt(now);
+
+        if (!created) {
+            removeTokens(planet.getId());
+        }
+        insertTokens(List.of(planet));
+        return created;
+    }
+
+    // Os termos só são gravados dentro da transação de quem grava o planeta: numa transação própria, a escrita
+    // pediria uma segunda conexão ao pool e poderia confirmar sem o planeta (ou o planeta sem os termos)
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void indexTokens(Planet planet) {
+        insertTokens(List.of(planet));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void removeTokens(Long planetId) {
+        jdbcTemplate.update("DELETE FROM planet_tokens WHERE planet_id = ?", planetId);
+    }
+
+    @Override
+    public int indexMissingTokens() {
+        int indexed = 0;
+        Long after = 0L;
+        List<Planet> missing;
+        do {
+            missing = entityManager.createQuery("""
+                            select p from Planet p
+                            where p.id > :after
+                              and not exists (select 1 from PlanetToken t where t.planetId = p.id)
+                            order by p.id""", Planet.class)
+                    .setParameter("after", after)
+                    .setMaxResults(batchSize)
+                    .getResultList();
+            if (!missing.isEmpty()) {
+                insertTokens(missing);
+                indexed += missing.size();
+                after = missing.getLast().getId();
+            }
+        } while (missing.size() == batchSize);
+        return indexed;
+    }
+
+    private void insertTokens(List<Planet> planets) {
+        List<PlanetToken> tokens = new ArrayList<>();
+        for (Planet planet : planets) {
+            PlanetFilter.tokenize(planet.getClimate())
+                    .forEach(token -> tokens.add(new PlanetToken(PlanetToken.Attribute.CLIMATE, token, planet.getId())));
+            PlanetFilter.tokenize(planet.getTerrain())
+                    .forEach(token -> tokens.add(new PlanetToken(PlanetToken.Attribute.TERRAIN, token, planet.getId())));
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_TOKEN, tokens, batchSize, (ps, token) -> {
+            ps.setString(1, token.getAttribute().name());
+            ps.setString(2, token.getToken());
+            ps.setLong(3, token.getPlanetId());
+        });
+    }
+
+    private boolean isMySql() {
+        Boolean current = mysql;
+        if (current == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            current = product != null && (product.equalsIgnoreCase("MySQL") || product.equalsIgnoreCase("MariaDB"));
+            mysql = current;
+        }
+        return current;
+    }
+
+    private CriteriaQuery<PlanetView> makeCriteria(PlanetFilter filter, Long after) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<PlanetView> query = cb.createQuery(PlanetView.class);
+        Root<Planet> root = query.from(Planet.class);
+
+        return query.select(cb.construct(PlanetView.class, root.get("id"), root.get("name"), root.get("climate"),
+                        root.get("terrain"), root.get("version"), root.get("updatedAt")))
+                .where(makePredicates(query, cb, root, filter, after))
+                .orderBy(cb.asc(root.get("id")));
+    }
+
+    private Predicate[] makePredicates(AbstractQuery<?> query, CriteriaBuilder cb, Root<Planet> root,
+                                       PlanetFilter filter, Long after) {
+        // Cada termo vira um "id in (postagens do termo)"; o banco resolve a interseção pelo índice
+        // de planet_tokens em vez de varrer a tabela de planetas comparando lower(coluna)
+        List<Predicate> predicates = new ArrayList<>();
+        addTokenPredicates(query, cb, root, predicates, PlanetToken.Attribute.CLIMATE, filter.climate());
+        addTokenPredicates(query, cb, root, predicates, PlanetToken.Attribute.TERRAIN, filter.terrain());
+        if (after != null) {
+            predicates.add(cb.greaterThan(root.get("id"), after));
+        }
+        return predicates.toArray(new Predicate[0]);
+    }
+
+    private void addTokenPredicates(AbstractQuery<?> query, CriteriaBuilder cb, Root<Planet> root,
+                                    List<Predicate> predicates, PlanetToken.Attribute attribute, Set<String> tokens) {
+        for (String token : tokens) {
+            Subquery<Long> postings = query.subquery(Long.class);
+            Root<PlanetToken> planetToken = postings.from(PlanetToken.class);
+            postings.select(planetToken.get("planetId"))
+                    .where(cb.equal(planetToken.get("attribute"), attribute),
+                            cb.equal(planetToken.get("normalizedToken"), token));
+            predicates.add(root.get("id").in(postings));
+        }
+    }
+}
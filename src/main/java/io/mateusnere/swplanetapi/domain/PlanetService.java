@@ -1,43 +1,414 @@
 package io.mateusnere.swplanetapi.domain;
 
+import io.mateusnere.swplanetapi.domain.PlanetMetrics.Operation;
+import io.mateusnere.swplanetapi.domain.PlanetMetrics.Outcome;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
-import org.springframework.data.domain.Example;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class PlanetService {
 
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    // Por quanto tempo o total aproximado de um filtro é reaproveitado antes de contar de novo
+    private static final long COUNT_TTL_MILLIS = 30_000;
+    private static final int MAX_CACHED_COUNTS = 1000;
+
+    // Limite de chaves por busca de vários planetas
+    public static final int MAX_LOOKUP_KEYS = 1000;
+
+    // Limite de valores por consulta "in" (nomes de um lote, ids e nomes de uma busca de vários planetas)
+    private static final int IN_CHUNK = 1000;
+
     private final PlanetRepository planetRepository;
 
-    public PlanetService(PlanetRepository planetRepository) {
+    private final Validator validator;
+
+    private final PlanetCache planetCache;
+
+    private final PlanetCollectionVersion collectionVersion;
+
+    private final PlanetMetrics metrics;
+
+    private final PlanetJsonCache jsonCache;
+
+    private final RecentWrites recentWrites;
+
+    private final PlanetChangeLog changeLog;
+
+    private final TransactionTemplate transactions;
+
+    // Nulo sem "planets.snapshot.enabled=true"
+    private final PlanetSnapshotStore snapshot;
+
+    private final Map<String, ApproximateCount> counts = new ConcurrentHashMap<>();
+
+    // Buscas por id e por nome já são únicas por chave no PlanetCache; páginas e contagens iguais e
+    // simultâneas dividem uma consulta só
+    private final SingleFlight<PageQuery, List<PlanetView>> pageQueries = new SingleFlight<>();
+
+    private final SingleFlight<CountQuery, Long> countQueries = new SingleFlight<>();
+
+    public PlanetService(PlanetRepository planetRepository, Validator validator, PlanetCache planetCache,
+                         PlanetCollectionVersion collectionVersion, PlanetMetrics metrics, PlanetJsonCache jsonCache,
+                         RecentWrites recentWrites, PlanetChangeLog changeLog,
+                         PlatformTransactionManager transactionManager, ObjectProvider<PlanetSnapshotStore> snapshot) {
         this.planetRepository = planetRepository;
+        this.validator = validator;
+        this.planetCache = planetCache;
+        this.collectionVersion = collectionVersion;
+        this.metrics = metrics;
+        this.jsonCache = jsonCache;
+        this.recentWrites = recentWrites;
+        this.changeLog = changeLog;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.snapshot = snapshot.getIfAvailable();
     }
 
+    // Planeta, termos e registro de alteração na mesma transação: uma conexão só por criação, e o JdbcTemplate
+    // reaproveita a conexão do JPA em vez de pedir outra ao pool
+    @Transactional
     public Planet create(Planet planet) {
-        return planetRepository.save(planet);
+        return metrics.timer(Operation.CREATE).record(() -> {
+            Planet created = planetRepository.save(planet);
+            planetRepository.indexTokens(created);
+            changeLog.record(created);
+            afterCommit(() -> {
+                recentWrites.written(created);
+                planetCache.evict(created);
+                jsonCache.evictPages();
+                collectionVersion.increment();
+                applyToSnapshot(List.of(created));
+                metrics.outcome(Operation.CREATE, Outcome.CREATED);
+            });
+            return created;
+        });
+    }
+
+    // Cria ou troca clima e terreno do planeta com esse nome numa instrução só do banco, sem a leitura antes
+    // e sem depender da violação de unique (e do rollback) para descobrir que o nome já existe
+    @Transactional
+    public PlanetUpsert upsert(Planet planet) {
+        return metrics.timer(Operation.UPSERT).record(() -> {
+            boolean created = planetRepository.upsertByName(planet);
+            changeLog.record(planet);
+            afterCommit(() -> {
+                recentWrites.written(planet);
+                planetCache.evict(planet);
+                jsonCache.evict(planet);
+                jsonCache.evictPages();
+                collectionVersion.increment();
+                applyToSnapshot(List.of(planet));
+                metrics.outcome(Operation.UPSERT, created ? Outcome.CREATED : Outcome.UPDATED);
+            });
+            return new PlanetUpsert(planet, created);
+        });
+    }
+
+    public List<PlanetBatchResult> createAll(List<Planet> planets) {
+        List<PlanetBatchResult> results = metrics.timer(Operation.CREATE_ALL).record(() -> insertBatch(planets));
+
+        Map<PlanetBatchResult.Status, Long> byStatus = results.stream()
+                .collect(Collectors.groupingBy(PlanetBatchResult::status, Collectors.counting()));
+        metrics.outcome(Operation.CREATE_ALL, Outcome.CREATED, byStatus.getOrDefault(PlanetBatchResult.Status.CREATED, 0L));
+        metrics.outcome(Operation.CREATE_ALL, Outcome.CONFLICT, byStatus.getOrDefault(PlanetBatchResult.Status.CONFLICT, 0L));
+        metrics.outcome(Operation.CREATE_ALL, Outcome.INVALID, byStatus.getOrDefault(PlanetBatchResult.Status.INVALID, 0L));
+        return results;
+    }
+
+    private List<PlanetBatchResult> insertBatch(List<Planet> planets) {
+        PlanetBatchResult[] results = new PlanetBatchResult[planets.size()];
+        Set<String> namesInBatch = new HashSet<>();
+        List<Integer> candidates = new ArrayList<>();
+
+        // Valida cada item isoladamente e descarta nomes repetidos dentro do próprio lote
+        for (int i = 0; i < planets.size(); i++) {
+            Planet planet = planets.get(i);
+            // Um "null" no corpo (ou uma linha nula do importador) é um item inválido, não um erro do lote inteiro
+            if (planet == null) {
+                results[i] = PlanetBatchResult.invalid(i, null, "planeta não informado");
+                continue;
+            }
+            Set<ConstraintViolation<Planet>> violations = validator.validate(planet);
+            if (!violations.isEmpty()) {
+                results[i] = PlanetBatchResult.invalid(i, planet, violations.stream()
+                        .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining(", ")));
+            } else if (!namesInBatch.add(planet.getName())) {
+                results[i] = PlanetBatchResult.conflict(i, planet);
+            } else {
+                candidates.add(i);
+            }
+        }
+
+        // Descarta os nomes que já existem no banco antes de inserir, em vez de depender da violação de unique
+        Set<String> existingNames = new HashSet<>();
+        for (int from = 0; from < candidates.size(); from += IN_CHUNK) {
+            List<String> names = candidates.subList(from, Math.min(from + IN_CHUNK, candidates.size())).stream()
+                    .map(i -> planets.get(i).getName())
+                    .toList();
+            existingNames.addAll(planetRepository.findExistingNames(names));
+        }
+
+        List<Integer> toInsert = new ArrayList<>();
+        for (Integer i : candidates) {
+            if (existingNames.contains(planets.get(i).getName())) {
+                results[i] = PlanetBatchResult.conflict(i, planets.get(i));
+            } else {
+                toInsert.add(i);
+            }
+        }
+
+        try {
+            planetRepository.insertAll(toInsert.stream().map(planets::get).toList());
+            toInsert.forEach(i -> results[i] = PlanetBatchResult.created(i, planets.get(i)));
+            toInsert.forEach(i -> recentWrites.written(planets.get(i)));
+            toInsert.forEach(i -> planetCache.evict(planets.get(i)));
+            applyToSnapshot(toInsert.stream().map(planets::get).toList());
+            if (!toInsert.isEmpty()) {
+                jsonCache.evictPages();
+                collectionVersion.increment();
+            }
+        } catch (DataIntegrityViolationException ex) {
+            // Outro cliente criou algum desses nomes no meio do caminho: o lote foi desfeito,
+            // então cada item é inserido individualmente para descobrir quais conflitam. Chamado daqui o create não
+            // passa pelo proxy do Spring, então a transação dele (planeta, termos e registro juntos) é aberta à mão
+            for (Integer i : toInsert) {
+                Planet planet = planets.get(i);
+                planet.setId(null);
+                try {
+                    results[i] = PlanetBatchResult.created(i, transactions.execute(status -> create(planet)));
+                } catch (DataIntegrityViolationException conflict) {
+                    results[i] = PlanetBatchResult.conflict(i, planet);
+                }
+            }
+        }
+
+        return Arrays.asList(results);
+    }
+
+    public Optional<PlanetView> getById(Long id) {
+        Optional<PlanetView> planet = metrics.timer(Operation.GET_BY_ID)
+                .record(() -> fromSnapshot() ? snapshot.getById(id)
+                        : recentWrites.read(id, () -> planetCache.getById(id, planetRepository::findViewById)));
+        metrics.outcome(Operation.GET_BY_ID, planet.isPresent() ? Outcome.HIT : Outcome.NOT_FOUND);
+        return planet;
     }
 
-    public Optional<Planet> getById(Long id) {
-        return planetRepository.findById(id);
+    public Optional<PlanetView> getByName(String name) {
+        Optional<PlanetView> planet = metrics.timer(Operation.GET_BY_NAME)
+                .record(() -> fromSnapshot() ? snapshot.getByName(name)
+                        : recentWrites.read(name, () -> planetCache.getByName(name, planetRepository::findViewByName)));
+        metrics.outcome(Operation.GET_BY_NAME, planet.isPresent() ? Outcome.HIT : Outcome.NOT_FOUND);
+        return planet;
     }
 
-    public Optional<Planet> getByName(String name) {
-        return planetRepository.findByName(name);
+    // Busca vários planetas de uma vez: o que está no PlanetCache sai dele, o resto vem em consultas "in" de até
+    // IN_CHUNK chaves. Chaves repetidas são consultadas uma vez só, e as que não existem voltam em missingIds e
+    // missingNames em vez de virar erro. Com a foto em memória carregada, tudo sai dela
+    public PlanetLookup lookup(Collection<Long> ids, Collection<String> names) {
+        PlanetLookup lookup = metrics.timer(Operation.LOOKUP).record(() -> {
+            Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+            Set<String> uniqueNames = new LinkedHashSet<>(names);
+
+            Map<Long, PlanetView> byId = new HashMap<>();
+            List<Long> idMisses = new ArrayList<>();
+            // Sem diferenciar maiúsculas: com a collation do MySQL, "tatooine" encontra "Tatooine"
+            Map<String, PlanetView> byName = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            List<String> nameMisses = new ArrayList<>();
+            if (fromSnapshot()) {
+                uniqueIds.forEach(id -> snapshot.getById(id).ifPresent(planet -> byId.put(id, planet)));
+                uniqueNames.forEach(name -> snapshot.getByName(name).ifPresent(planet -> byName.put(name, planet)));
+            } else {
+                for (Long id : uniqueIds) {
+                    planetCache.peekById(id).ifPresentOrElse(planet -> byId.put(id, planet), () -> idMisses.add(id));
+                }
+                for (String name : uniqueNames) {
+                    planetCache.peekByName(name).ifPresentOrElse(planet -> byName.put(name, planet), () -> nameMisses.add(name));
+                }
+            }
+
+            recentWrites.readCollection(() -> {
+                for (int from = 0; from < idMisses.size(); from += IN_CHUNK) {
+                    planetRepository.findViewsByIdIn(idMisses.subList(from, Math.min(from + IN_CHUNK, idMisses.size())))
+                            .forEach(planet -> byId.put(planet.id(), planet));
+                }
+                for (int from = 0; from < nameMisses.size(); from += IN_CHUNK) {
+                    planetRepository.findViewsByNameIn(nameMisses.subList(from, Math.min(from + IN_CHUNK, nameMisses.size())))
+                            .forEach(planet -> byName.put(planet.name(), planet));
+                }
+                return null;
+            });
+
+            Map<Long, PlanetView> found = new LinkedHashMap<>();
+            List<Long> missingIds = new ArrayList<>();
+            for (Long id : uniqueIds) {
+                PlanetView planet = byId.get(id);
+                if (planet == null) {
+                    missingIds.add(id);
+                } else {
+                    found.putIfAbsent(planet.id(), planet);
+                }
+            }
+            List<String> missingNames = new ArrayList<>();
+            for (String name : uniqueNames) {
+                PlanetView planet = byName.get(name);
+                if (planet == null) {
+                    missingNames.add(name);
+                } else {
+                    found.putIfAbsent(planet.id(), planet);
+                }
+            }
+            return new PlanetLookup(List.copyOf(found.values()), missingIds, missingNames);
+        });
+        metrics.outcome(Operation.LOOKUP, Outcome.HIT, lookup.planets().size());
+        metrics.outcome(Operation.LOOKUP, Outcome.NOT_FOUND, lookup.missingIds().size() + lookup.missingNames().size());
+        return lookup;
     }
 
-    public List<Planet> list(String climate, String terrain) {
+    public PlanetPage list(String climate, String terrain, Long after, int limit) {
+        int pageSize = Math.clamp(limit, 1, MAX_PAGE_SIZE);
+
+        PlanetPage page = metrics.timer(Operation.LIST).record(() -> {
+            // Busca um planeta a mais só para saber se existe uma próxima página
+            PlanetFilter filter = PlanetFilter.of(climate, terrain);
+            List<PlanetView> planets = fromSnapshot() ? snapshot.findPage(filter, after, pageSize + 1)
+                    : recentWrites.readCollection(() -> pageQueries.execute(
+                            new PageQuery(filter, after, pageSize + 1, RecentWrites.primaryRequired()),
+                            () -> planetRepository.findPage(filter, after, pageSize + 1)));
+            if (planets.size() <= pageSize) {
+                return new PlanetPage(planets, null);
+            }
+
+            List<PlanetView> firstPlanets = planets.subList(0, pageSize);
+            return new PlanetPage(firstPlanets, firstPlanets.getLast().id());
+        });
+        metrics.listed(page.planets().size());
+        return page;
+    }
+
+    @Transactional(readOnly = true)
+    public void stream(String climate, String terrain, Consumer<PlanetView> consumer) {
+        metrics.timer(Operation.STREAM).record(() -> {
+            recentWrites.readCollection(() -> {
+                try (Stream<PlanetView> planets = planetRepository.streamAll(PlanetFilter.of(climate, terrain))) {
+                    planets.forEach(consumer);
+                }
+                return null;
+            });
+        });
+        metrics.outcome(Operation.STREAM, Outcome.LISTED);
+    }
+
+    public long count(String climate, String terrain) {
+        PlanetFilter filter = PlanetFilter.of(climate, terrain);
+        // A foto conta na hora, então o total sai exato e sem o cache aproximado
+        if (fromSnapshot()) {
+            return snapshot.count(filter);
+        }
+        String key = filter.climate() + "|" + filter.terrain();
+        long now = System.currentTimeMillis();
+
+        ApproximateCount cached = counts.get(key);
+        if (cached != null && now - cached.countedAt() < COUNT_TTL_MILLIS) {
+            return cached.total();
+        }
 
-        Example<Planet> query = QueryBuilder.makeQuery(new Planet(climate, terrain));
-        return (List<Planet>) planetRepository.findAll(query);
+        long total = recentWrites.readCollection(() -> countQueries.execute(
+                new CountQuery(filter, RecentWrites.primaryRequired()), () -> planetRepository.count(filter)));
+        if (counts.size() >= MAX_CACHED_COUNTS) {
+            counts.clear();
+        }
+        counts.put(key, new ApproximateCount(total, now));
+        return total;
     }
 
+    // Um DELETE só, sem ler antes: as linhas apagadas decidem entre a remoção e o 404. O nome usado nas
+    // invalidações vem do PlanetCache quando o planeta está nele; sem o nome, o cache limpa a busca pelo id
+    @Transactional
     public void remove(Long id) {
-        if(planetRepository.findById(id).isEmpty()) {
-            throw new EmptyResultDataAccessException(1);
+        metrics.timer(Operation.REMOVE).record(() -> {
+            if (planetRepository.deleteByIdReturningCount(id) == 0) {
+                throw new EmptyResultDataAccessException(1);
+            }
+            planetRepository.removeTokens(id);
+            Planet planet = new Planet(id, planetCache.nameOf(id).orElse(null), null, null);
+            changeLog.record(planet);
+            afterCommit(() -> {
+                recentWrites.written(planet);
+                planetCache.evict(planet);
+                jsonCache.evict(planet);
+                jsonCache.evictPages();
+                collectionVersion.increment();
+                if (snapshot != null) {
+                    snapshot.remove(id);
+                }
+                metrics.outcome(Operation.REMOVE, Outcome.REMOVED);
+            });
+        });
+    }
+
+    // A foto só responde depois de carregada; até lá as leituras vão ao banco como sem ela
+    private boolean fromSnapshot() {
+        return snapshot != null && snapshot.isReady();
+    }
+
+    private void applyToSnapshot(List<Planet> planets) {
+        if (snapshot != null && !planets.isEmpty()) {
+            snapshot.applyAll(planets);
         }
-        planetRepository.deleteById(id);
+    }
+
+    // Invalidar antes do commit deixaria outra requisição recarregar no cache o planeta que ainda está
+    // para ser removido
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private record ApproximateCount(long total, long countedAt) {
+    }
+
+    // Uma leitura que precisa do primário (logo depois de uma escrita) não aproveita a de uma réplica
+    private record PageQuery(PlanetFilter filter, Long after, int limit, boolean primary) {
+    }
+
+    private record CountQuery(PlanetFilter filter, boolean primary) {
     }
 }
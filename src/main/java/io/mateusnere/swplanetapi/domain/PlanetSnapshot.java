@@ -0,0 +1,455 @@
+package io.mateusnere.swplanetapi.domain;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Foto imutável de todos os planetas, guardada em colunas: ids num long[] ordenado, os nomes num único char[]
+// com o deslocamento de cada um, clima e terreno como códigos de um dicionário (são poucos valores distintos)
+// e versão e data de alteração em long[]. São uns 50 bytes por planeta mais 2 por letra do nome, contra algumas
+// centenas de um Planet com os Long, o Instant e as três Strings.
+// Uma escrita não mexe nas colunas: gera uma foto nova que divide as colunas com a anterior e copia só o delta
+// (planetas criados, alterados ou removidos desde a última compactação, em ordem de id). As leituras juntam os
+// dois e, fora o filtro da listagem, só alocam o que vai na resposta.
+// Nomes são comparados sem diferenciar maiúsculas, como a collation do MySQL na busca por nome
+final class PlanetSnapshot {
+
+    static final PlanetSnapshot EMPTY = new Builder().build();
+
+    // Versão ou data de alteração nula
+    private static final long NONE = Long.MIN_VALUE;
+
+    private static final Change REMOVED = new Change(null, Set.of(), Set.of());
+
+    private final long[] ids;
+
+    private final int[] nameOffsets;
+
+    private final char[] names;
+
+    private final int[] climates;
+
+    private final int[] terrains;
+
+    private final long[] versions;
+
+    // Nanossegundos desde 1970 (cabe num long até 2262)
+    private final long[] updatedAt;
+
+    private final Dictionary climateDictionary;
+
+    private final Dictionary terrainDictionary;
+
+    // Espalhamento dos nomes com endereçamento aberto: a linha do planeta mais um, ou zero na posição vazia
+    private final int[] nameSlots;
+
+    private final long[] deltaIds;
+
+    private final Change[] deltaChanges;
+
+    // Nome (já com as letras dobradas pelo fold) -> id dos planetas vivos do delta
+    private final Map<String, Long> deltaNames;
+
+    private final int size;
+
+    private PlanetSnapshot(long[] ids, int[] nameOffsets, char[] names, int[] climates, int[] terrains, long[] versions,
+                           long[] updatedAt, Dictionary climateDictionary, Dictionary terrainDictionary, int[] nameSlots,
+                           long[] deltaIds, Change[] deltaChanges, Map<String, Long> deltaNames) {
+        this.ids = ids;
+        this.nameOffsets = nameOffsets;
+        this.names = names;
+        this.climates = climates;
+        this.terrains = terrains;
+        this.versions = versions;
+        this.updatedAt = updatedAt;
+        this.climateDictionary = climateDictionary;
+        this.terrainDictionary = terrainDictionary;
+        this.nameSlots = nameSlots;
+        this.deltaIds = deltaIds;
+        this.deltaChanges = deltaChanges;
+        this.deltaNames = deltaNames;
+
+        int live = ids.length;
+        for (int change = 0; change < deltaIds.length; change++) {
+            if (Arrays.binarySearch(ids, deltaIds[change]) >= 0) {
+                live--;
+            }
+            if (deltaChanges[change].planet() != null) {
+                live++;
+            }
+        }
+        this.size = live;
+    }
+
+    private PlanetSnapshot withDelta(long[] deltaIds, Change[] deltaChanges, Map<String, Long> deltaNames) {
+        return new PlanetSnapshot(ids, nameOffsets, names, climates, terrains, versions, updatedAt, climateDictionary,
+                terrainDictionary, nameSlots, deltaIds, deltaChanges, deltaNames);
+    }
+
+    int size() {
+        return size;
+    }
+
+    int deltaSize() {
+        return deltaIds.length;
+    }
+
+    // Tamanho aproximado das colunas, sem os dicionários e o delta
+    long columnBytes() {
+        return 8L * ids.length + 4L * nameOffsets.length + 2L * names.length + 4L * climates.length
+                + 4L * terrains.length + 8L * versions.length + 8L * updatedAt.length + 4L * nameSlots.length;
+    }
+
+    PlanetView byId(long id) {
+        int change = Arrays.binarySearch(deltaIds, id);
+        if (change >= 0) {
+            return deltaChanges[change].planet();
+        }
+        int row = Arrays.binarySearch(ids, id);
+        return row >= 0 ? view(row) : null;
+    }
+
+    PlanetView byName(String name) {
+        Long changed = deltaNames.get(fold(name));
+        if (changed != null) {
+            return byId(changed);
+        }
+        int row = findName(name);
+        // Uma linha da base que está no delta foi alterada ou removida depois da foto
+        return row >= 0 && Arrays.binarySearch(deltaIds, ids[row]) < 0 ? view(row) : null;
+    }
+
+    // Até "limit" planetas do filtro com id maior que "after", em ordem de id, como o PlanetRepository.findPage
+    List<PlanetView> page(PlanetFilter filter, Long after, int limit) {
+        boolean[] climateMask = climateDictionary.mask(filter.climate());
+        boolean[] terrainMask = terrainDictionary.mask(filter.terrain());
+        List<PlanetView> planets = new ArrayList<>();
+
+        int row = after == null ? 0 : firstAfter(ids, after);
+        int change = after == null ? 0 : firstAfter(deltaIds, after);
+        while (planets.size() < limit && (row < ids.length || change < deltaIds.length)) {
+            long rowId = row < ids.length ? ids[row] : Long.MAX_VALUE;
+            long changeId = change < deltaIds.length ? deltaIds[change] : Long.MAX_VALUE;
+            if (changeId <= rowId) {
+                if (changeId == rowId) {
+                    row++;
+                }
+                Change planet = deltaChanges[change++];
+                if (planet.matches(filter)) {
+                    planets.add(planet.planet());
+                }
+            } else {
+                if (matches(row, climateMask, terrainMask)) {
+                    planets.add(view(row));
+                }
+                row++;
+            }
+        }
+        return planets;
+    }
+
+    long count(PlanetFilter filter) {
+        if (filter.isEmpty()) {
+            return size;
+        }
+        boolean[] climateMask = climateDictionary.mask(filter.climate());
+        boolean[] terrainMask = terrainDictionary.mask(filter.terrain());
+
+        long total = 0;
+        for (int row = 0; row < ids.length; row++) {
+            if (matches(row, climateMask, terrainMask) && Arrays.binarySearch(deltaIds, ids[row]) < 0) {
+                total++;
+            }
+        }
+        for (Change change : deltaChanges) {
+            if (change.matches(filter)) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    PlanetSnapshot with(PlanetView planet) {
+        return withAll(List.of(planet), List.of());
+    }
+
+    // A remoção fica no delta mesmo sem o planeta na foto: durante a carga ela ainda precisa ser aplicada
+    // sobre a foto que está sendo lida
+    PlanetSnapshot without(long id) {
+        return withAll(List.of(), List.of(id));
+    }
+
+    // Um lote de escritas num delta só: o delta e os nomes são copiados uma vez, não uma por planeta
+    PlanetSnapshot withAll(Collection<PlanetView> planets, Collection<Long> removed) {
+        TreeMap<Long, Change> changes = new TreeMap<>();
+        removed.forEach(id -> changes.put(id, REMOVED));
+        for (PlanetView planet : planets) {
+            changes.put(planet.id(), new Change(planet, PlanetFilter.tokenize(planet.climate()),
+                    PlanetFilter.tokenize(planet.terrain())));
+        }
+        long[] changedIds = new long[changes.size()];
+        int index = 0;
+        for (Long id : changes.keySet()) {
+            changedIds[index++] = id;
+        }
+        return withChanges(changedIds, changes.values().toArray(new Change[0]));
+    }
+
+    // Junta o delta na base, numa foto nova sem delta
+    PlanetSnapshot compact() {
+        Builder builder = new Builder();
+        int row = 0;
+        int change = 0;
+        while (row < ids.length || change < deltaIds.length) {
+            long rowId = row < ids.length ? ids[row] : Long.MAX_VALUE;
+            long changeId = change < deltaIds.length ? deltaIds[change] : Long.MAX_VALUE;
+            if (changeId <= rowId) {
+                if (changeId == rowId) {
+                    row++;
+                }
+                PlanetView planet = deltaChanges[change++].planet();
+                if (planet != null) {
+                    builder.add(planet);
+                }
+            } else {
+                builder.add(ids[row], names, nameOffsets[row], nameOffsets[row + 1],
+                        climateDictionary.values[climates[row]], terrainDictionary.values[terrains[row]],
+                        versions[row], updatedAt[row]);
+                row++;
+            }
+        }
+        return builder.build();
+    }
+
+    // Aplica nesta foto o delta de outra (as escritas que chegaram enquanto esta era carregada)
+    PlanetSnapshot replay(PlanetSnapshot other) {
+        return withChanges(other.deltaIds, other.deltaChanges);
+    }
+
+    // Junta ao delta as alterações em ordem de id, numa passada só pelos dois. Uma alteração do mesmo id
+    // substitui a do delta
+    private PlanetSnapshot withChanges(long[] changedIds, Change[] changes) {
+        Map<String, Long> changedNames = new HashMap<>(deltaNames);
+        long[] mergedIds = new long[deltaIds.length + changedIds.length];
+        Change[] merged = new Change[mergedIds.length];
+        int size = 0;
+        int index = 0;
+        for (int change = 0; change < changedIds.length; change++) {
+            long id = changedIds[change];
+            while (index < deltaIds.length && deltaIds[index] < id) {
+                mergedIds[size] = deltaIds[index];
+                merged[size++] = deltaChanges[index++];
+            }
+            if (index < deltaIds.length && deltaIds[index] == id) {
+                PlanetView previous = deltaChanges[index++].planet();
+                if (previous != null) {
+                    changedNames.remove(fold(previous.name()), id);
+                }
+            }
+            PlanetView planet = changes[change].planet();
+            if (planet != null) {
+                changedNames.put(fold(planet.name()), id);
+            }
+            mergedIds[size] = id;
+            merged[size++] = changes[change];
+        }
+        int rest = deltaIds.length - index;
+        System.arraycopy(deltaIds, index, mergedIds, size, rest);
+        System.arraycopy(deltaChanges, index, merged, size, rest);
+        size += rest;
+        return withDelta(Arrays.copyOf(mergedIds, size), Arrays.copyOf(merged, size), Map.copyOf(changedNames));
+    }
+
+    private boolean matches(int row, boolean[] climateMask, boolean[] terrainMask) {
+        return (climateMask == null || climateMask[climates[row]]) && (terrainMask == null || terrainMask[terrains[row]]);
+    }
+
+    private PlanetView view(int row) {
+        return new PlanetView(ids[row],
+                new String(names, nameOffsets[row], nameOffsets[row + 1] - nameOffsets[row]),
+                climateDictionary.values[climates[row]],
+                terrainDictionary.values[terrains[row]],
+                versions[row] == NONE ? null : versions[row],
+                updatedAt[row] == NONE ? null : Instant.ofEpochSecond(0, updatedAt[row]));
+    }
+
+    private int findName(String name) {
+        int mask = nameSlots.length - 1;
+        int hash = 0;
+        for (int i = 0; i < name.length(); i++) {
+            hash = 31 * hash + fold(name.charAt(i));
+        }
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            int row = nameSlots[slot] - 1;
+            if (row < 0 || nameEquals(row, name)) {
+                return row;
+            }
+        }
+    }
+
+    private boolean nameEquals(int row, String name) {
+        int start = nameOffsets[row];
+        if (nameOffsets[row + 1] - start != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (fold(names[start + i]) != fold(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int firstAfter(long[] sorted, long after) {
+        int index = Arrays.binarySearch(sorted, after);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    // Mesma regra do String.equalsIgnoreCase: a letra maiúscula e depois a minúscula, caractere a caractere
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    private static String fold(String name) {
+        char[] folded = new char[name.length()];
+        for (int i = 0; i < folded.length; i++) {
+            folded[i] = fold(name.charAt(i));
+        }
+        return new String(folded);
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private record Change(PlanetView planet, Set<String> climate, Set<String> terrain) {
+
+        boolean matches(PlanetFilter filter) {
+            return planet != null && climate.containsAll(filter.climate()) && terrain.containsAll(filter.terrain());
+        }
+    }
+
+    // Valores distintos de uma coluna, com os termos de cada um já separados para os filtros
+    private static final class Dictionary {
+
+        private final String[] values;
+
+        private final List<Set<String>> tokens;
+
+        private Dictionary(String[] values) {
+            this.values = values;
+            this.tokens = Arrays.stream(values).map(PlanetFilter::tokenize).toList();
+        }
+
+        // Os códigos que têm todos os termos do filtro, ou null quando o filtro não restringe a coluna.
+        // É a única alocação da listagem fora da resposta, do tamanho do dicionário
+        boolean[] mask(Set<String> filter) {
+            if (filter.isEmpty()) {
+                return null;
+            }
+            boolean[] mask = new boolean[values.length];
+            for (int code = 0; code < values.length; code++) {
+                mask[code] = tokens.get(code).containsAll(filter);
+            }
+            return mask;
+        }
+    }
+
+    // Monta a base a partir de planetas em ordem crescente de id
+    static final class Builder {
+
+        private long[] ids = new long[16];
+
+        private int[] nameOffsets = new int[17];
+
+        private char[] names = new char[256];
+
+        private int[] climates = new int[16];
+
+        private int[] terrains = new int[16];
+
+        private long[] versions = new long[16];
+
+        private long[] updatedAt = new long[16];
+
+        private final Map<String, Integer> climateCodes = new HashMap<>();
+
+        private final Map<String, Integer> terrainCodes = new HashMap<>();
+
+        private int size;
+
+        Builder add(PlanetView planet) {
+            char[] name = planet.name().toCharArray();
+            Instant changedAt = planet.updatedAt();
+            add(planet.id(), name, 0, name.length, planet.climate(), planet.terrain(),
+                    planet.version() == null ? NONE : planet.version(),
+                    changedAt == null ? NONE : changedAt.getEpochSecond() * 1_000_000_000L + changedAt.getNano());
+            return this;
+        }
+
+        private void add(long id, char[] name, int from, int to, String climate, String terrain, long version, long changedAt) {
+            if (size > 0 && id <= ids[size - 1]) {
+                throw new IllegalArgumentException("Planetas fora da ordem de id: " + id);
+            }
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                nameOffsets = Arrays.copyOf(nameOffsets, capacity + 1);
+                climates = Arrays.copyOf(climates, capacity);
+                terrains = Arrays.copyOf(terrains, capacity);
+                versions = Arrays.copyOf(versions, capacity);
+                updatedAt = Arrays.copyOf(updatedAt, capacity);
+            }
+            int start = nameOffsets[size];
+            int length = to - from;
+            if (start + length > names.length) {
+                names = Arrays.copyOf(names, Math.max(names.length * 2, start + length));
+            }
+            System.arraycopy(name, from, names, start, length);
+
+            ids[size] = id;
+            nameOffsets[size + 1] = start + length;
+            climates[size] = climateCodes.computeIfAbsent(climate, value -> climateCodes.size());
+            terrains[size] = terrainCodes.computeIfAbsent(terrain, value -> terrainCodes.size());
+            versions[size] = version;
+            updatedAt[size] = changedAt;
+            size++;
+        }
+
+        PlanetSnapshot build() {
+            char[] allNames = Arrays.copyOf(names, nameOffsets[size]);
+            int[] offsets = Arrays.copyOf(nameOffsets, size + 1);
+
+            // Pelo menos o dobro de posições que nomes, para as sondagens serem curtas
+            int[] slots = new int[Math.max(1, Integer.highestOneBit(Math.max(1, size * 2 - 1)) << 1)];
+            int mask = slots.length - 1;
+            for (int row = 0; row < size; row++) {
+                int hash = 0;
+                for (int i = offsets[row]; i < offsets[row + 1]; i++) {
+                    hash = 31 * hash + fold(allNames[i]);
+                }
+                int slot = spread(hash) & mask;
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = row + 1;
+            }
+
+            return new PlanetSnapshot(Arrays.copyOf(ids, size), offsets, allNames, Arrays.copyOf(climates, size),
+                    Arrays.copyOf(terrains, size), Arrays.copyOf(versions, size), Arrays.copyOf(updatedAt, size),
+                    dictionary(climateCodes), dictionary(terrainCodes), slots, new long[0], new Change[0], Map.of());
+        }
+
+        private static Dictionary dictionary(Map<String, Integer> codes) {
+            String[] values = new String[codes.size()];
+            codes.forEach((value, code) -> values[code] = value);
+            return new Dictionary(values);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package io.mateusnere.swplanetapi.domain;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Modelo de leitura em memória: com "planets.snapshot.enabled=true" o PlanetService responde getById, getByName,
+// list e count pela PlanetSnapshot, sem banco e sem cache. A foto é carregada na subida, em páginas por id;
+// até lá as leituras continuam indo ao banco. As escritas do PlanetService (depois do commit) e as das outras
+// instâncias (pelo PlanetChangeLog, relendo os planetas alterados) trocam a foto por outra com o delta novo.
+// Leitores nunca travam: leem a referência volátil. Escritores se revezam no lock, e quando o delta passa de
+// "max-delta" planetas a própria escrita compacta a foto
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(name = "planets.snapshot.enabled", havingValue = "true")
+public class PlanetSnapshotStore implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(PlanetSnapshotStore.class);
+
+    private static final long TOMBSTONE_TTL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final PlanetRepository planetRepository;
+
+    private final int maxDelta;
+
+    private final int loadBatch;
+
+    private final ReentrantLock writes = new ReentrantLock();
+
+    // Ids removidos no último minuto -> quando, em ordem de remoção. Só acessado com o lock
+    private final LinkedHashMap<Long, Long> removedAt = new LinkedHashMap<>();
+
+    private volatile PlanetSnapshot snapshot = PlanetSnapshot.EMPTY;
+
+    private volatile boolean ready;
+
+    public PlanetSnapshotStore(PlanetRepository planetRepository, MeterRegistry registry,
+                               @Value("${planets.snapshot.max-delta:1024}") int maxDelta,
+                               @Value("${planets.snapshot.load-batch:5000}") int loadBatch) {
+        this.planetRepository = planetRepository;
+        this.maxDelta = maxDelta;
+        this.loadBatch = loadBatch;
+        Gauge.builder("planets.snapshot.size", this, store -> store.snapshot.size())
+                .description("Planetas na foto em memória")
+                .register(registry);
+        Gauge.builder("planets.snapshot.delta", this, store -> store.snapshot.deltaSize())
+                .description("Planetas alterados desde a última compactação da foto")
+                .register(registry);
+        Gauge.builder("planets.snapshot.bytes", this, store -> store.snapshot.columnBytes())
+                .description("Tamanho aproximado das colunas da foto")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        load();
+    }
+
+    // Lê do primário: uma réplica atrasada deixaria de fora escritas que o registro de alterações já passou
+    public void load() {
+        // Numa recarga a foto atual é descartada: até o fim as leituras voltam ao banco, e só as escritas
+        // feitas durante a carga são reaplicadas
+        writes.lock();
+        try {
+            ready = false;
+            snapshot = PlanetSnapshot.EMPTY;
+        } finally {
+            writes.unlock();
+        }
+
+        PlanetSnapshot.Builder builder = new PlanetSnapshot.Builder();
+        PlanetFilter all = PlanetFilter.of(null, null);
+        Long after = null;
+        List<PlanetView> page;
+        do {
+            Long from = after;
+            page = RecentWrites.onPrimary(() -> planetRepository.findPage(all, from, loadBatch));
+            page.forEach(builder::add);
+            after = page.isEmpty() ? after : page.getLast().id();
+        } while (page.size() == loadBatch);
+
+        writes.lock();
+        try {
+            // As escritas feitas durante a carga estão no delta da foto anterior
+            snapshot = builder.build().replay(snapshot);
+            ready = true;
+        } finally {
+            writes.unlock();
+        }
+        log.info("{} planetas carregados na foto em memória", snapshot.size());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public Optional<PlanetView> getById(Long id) {
+        return Optional.ofNullable(snapshot.byId(id));
+    }
+
+    public Optional<PlanetView> getByName(String name) {
+        return Optional.ofNullable(snapshot.byName(name));
+    }
+
+    public List<PlanetView> findPage(PlanetFilter filter, Long after, int limit) {
+        return snapshot.page(filter, after, limit);
+    }
+
+    public long count(PlanetFilter filter) {
+        return snapshot.count(filter);
+    }
+
+    // Um lote (createAll) troca a foto uma vez só. Sem a versão (atualização pelo upsert no MySQL), o planeta é
+    // relido para o ETag continuar certo
+    public void applyAll(List<Planet> planets) {
+        List<Long> unversioned = new ArrayList<>();
+        List<PlanetView> views = new ArrayList<>(planets.size());
+        for (Planet planet : planets) {
+            if (planet.getVersion() == null) {
+                unversioned.add(planet.getId());
+            } else {
+                views.add(PlanetView.of(planet));
+            }
+        }
+        if (!unversioned.isEmpty()) {
+            refresh(unversioned);
+        }
+        if (views.isEmpty()) {
+            return;
+        }
+        writes.lock();
+        try {
+            publish(snapshot.withAll(newer(snapshot, views), List.of()));
+        } finally {
+            writes.unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        writes.lock();
+        try {
+            bury(List.of(id));
+            publish(snapshot.without(id));
+        } finally {
+            writes.unlock();
+        }
+    }
+
+    // Relê os planetas alterados por outra instância; os que não existem mais saem da foto
+    public void refresh(Collection<Long> ids) {
+        List<PlanetView> found = RecentWrites.onPrimary(() -> planetRepository.findViewsByIdIn(ids));
+        Set<Long> removed = new HashSet<>(ids);
+        found.forEach(planet -> removed.remove(planet.id()));
+        writes.lock();
+        try {
+            bury(removed);
+            publish(snapshot.withAll(newer(snapshot, found), removed));
+        } finally {
+            writes.unlock();
+        }
+    }
+
+    // Uma releitura que chega depois de uma escrita local mais nova não volta o planeta para trás, nem traz de
+    // volta um planeta removido depois de lido do banco
+    private List<PlanetView> newer(PlanetSnapshot current, List<PlanetView> planets) {
+        return planets.stream().filter(planet -> {
+            if (removedAt.containsKey(planet.id())) {
+                return false;
+            }
+            PlanetView existing = current.byId(planet.id());
+            return existing == null || existing.version() == null || planet.version() == null
+                    || existing.version() <= planet.version();
+        }).toList();
+    }
+
+    // Chamado com o lock. Ids não são reaproveitados (auto incremento), então a lápide só precisa durar mais que
+    // a releitura mais lenta entre o SELECT e o publish
+    private void bury(Collection<Long> ids) {
+        long now = System.nanoTime();
+        Iterator<Long> oldest = removedAt.values().iterator();
+        while (oldest.hasNext() && now - oldest.next() > TOMBSTONE_TTL_NANOS) {
+            oldest.remove();
+        }
+        ids.forEach(id -> removedAt.put(id, now));
+    }
+
+    // Antes da carga terminar tudo fica no delta, que é reaplicado sobre a foto carregada
+    private void publish(PlanetSnapshot next) {
+        snapshot = ready && next.deltaSize() > maxDelta ? next.compact() : next;
+    }
+}
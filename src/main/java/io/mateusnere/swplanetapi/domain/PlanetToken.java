@@ -0,0 +1,77 @@
+package io.mateusnere.swplanetapi.domain;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+// Índice invertido de clima e terreno: uma linha por termo normalizado de cada planeta.
+// A chave primária (attribute, token, planet_id) é a lista de postagens de cada termo, já ordenada por id.
+// O Hibernate monta a chave na ordem alfabética dos campos, daí o nome normalizedToken (antes de planetId)
+@Entity
+@Table(name = "planet_tokens", indexes = {
+        @Index(name = "idx_planet_tokens_planet", columnList = "planet_id")
+})
+@IdClass(PlanetToken.Key.class)
+public class PlanetToken {
+
+    public enum Attribute {
+        CLIMATE, TERRAIN
+    }
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private Attribute attribute;
+
+    @Id
+    @Column(name = "token")
+    private String normalizedToken;
+
+    @Id
+    @Column(name = "planet_id")
+    private Long planetId;
+
+    public PlanetToken() {
+    }
+
+    public PlanetToken(Attribute attribute, String token, Long planetId) {
+        this.attribute = attribute;
+        this.normalizedToken = token;
+        this.planetId = planetId;
+    }
+
+    public Attribute getAttribute() {
+        return attribute;
+    }
+
+    public String getToken() {
+        return normalizedToken;
+    }
+
+    public Long getPlanetId() {
+        return planetId;
+    }
+
+    public static class Key implements Serializable {
+
+        private Attribute attribute;
+
+        private String normalizedToken;
+
+        private Long planetId;
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key key
+                    && attribute == key.attribute
+                    && Objects.equals(normalizedToken, key.normalizedToken)
+                    && Objects.equals(planetId, key.planetId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(attribute, normalizedToken, planetId);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package io.mateusnere.swplanetapi.domain;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// Na subida da aplicação, indexa os planetas que ainda não estão em planet_tokens
+// (linhas criadas antes do índice existir ou inseridas direto no banco)
+@Component
+@ConditionalOnProperty(name = "planets.tokens.backfill-on-startup", havingValue = "true", matchIfMissing = true)
+public class PlanetTokenBackfill implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(PlanetTokenBackfill.class);
+
+    private final PlanetRepository planetRepository;
+
+    public PlanetTokenBackfill(PlanetRepository planetRepository) {
+        this.planetRepository = planetRepository;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int indexed = planetRepository.indexMissingTokens();
+        if (indexed > 0) {
+            log.info("{} planetas indexados em planet_tokens", indexed);
+        }
+    }
+}
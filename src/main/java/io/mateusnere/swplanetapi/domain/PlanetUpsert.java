@@ -0,0 +1,5 @@
+package io.mateusnere.swplanetapi.domain;
+
+// Resultado do PUT /planets/name/{name}: o planeta gravado e se ele foi criado agora ou já existia
+public record PlanetUpsert(Planet planet, boolean created) {
+}
@@ -0,0 +1,16 @@
+package io.mateusnere.swplanetapi.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Instant;
+
+// Projeção somente leitura de um planeta, montada direto do resultado da consulta (select new ...):
+// não passa pelo contexto de persistência nem pelo dirty checking. O JSON é o mesmo do Planet
+public record PlanetView(Long id, String name, String climate, String terrain,
+                         @JsonIgnore Long version, @JsonIgnore Instant updatedAt) {
+
+    public static PlanetView of(Planet planet) {
+        return new PlanetView(planet.getId(), planet.getName(), planet.getClimate(), planet.getTerrain(),
+                planet.getVersion(), planet.getUpdatedAt());
+    }
+}
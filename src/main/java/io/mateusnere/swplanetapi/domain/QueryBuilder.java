@@ -1,15 +0,0 @@
-package io.mateusnere.swplanetapi.domain;
-
-import org.springframework.data.domain.Example;
-import org.springframework.data.domain.ExampleMatcher;
-
-public class QueryBuilder {
-
-    private QueryBuilder() {
-    }
-
-    public static Example<Planet> makeQuery(Planet planet) {
-        ExampleMatcher exampleMatcher = ExampleMatcher.matchingAll().withIgnoreCase().withIgnoreNullValues();
-        return Example.of(planet, exampleMatcher);
-    }
-}
@@ -0,0 +1,169 @@
+package io.mateusnere.swplanetapi.domain;
+
+import io.r2dbc.spi.Readable;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Acesso não bloqueante à mesma tabela de planetas e ao mesmo índice planet_tokens usados pelo JPA.
+// O SQL é escrito à mão porque o R2DBC não tem Criteria API nem as anotações de mapeamento da entidade
+@Repository
+@Profile("reactive")
+public class ReactivePlanetRepository {
+
+    private static final String COLUMNS = "id, name, climate, terrain, version, updated_at";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactivePlanetRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Planet> insert(Planet planet) {
+        Instant now = Instant.now();
+        return databaseClient.sql("INSERT INTO planets (name, climate, terrain, version, updated_at) "
+                        + "VALUES (:name, :climate, :terrain, 0, :updatedAt)")
+                .bind("name", planet.getName())
+                .bind("climate", planet.getClimate())
+                .bind("terrain", planet.getTerrain())
+                .bind("updatedAt", now.atOffset(ZoneOffset.UTC))
+                .filter(statement -> statement.returnGeneratedValues("id"))
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .map(id -> {
+                    Planet created = new Planet(id, planet.getName(), planet.getClimate(), planet.getTerrain());
+                    created.setVersion(0L);
+                    created.setUpdatedAt(now);
+                    return created;
+                });
+    }
+
+    public Mono<Void> indexTokens(Planet planet) {
+        List<PlanetToken> tokens = new ArrayList<>();
+        PlanetFilter.tokenize(planet.getClimate())
+                .forEach(token -> tokens.add(new PlanetToken(PlanetToken.Attribute.CLIMATE, token, planet.getId())));
+        PlanetFilter.tokenize(planet.getTerrain())
+                .forEach(token -> tokens.add(new PlanetToken(PlanetToken.Attribute.TERRAIN, token, planet.getId())));
+
+        // O atributo é uma constante do enum e vai literal no SQL: como parâmetro, o driver do H2 o envia
+        // como CLOB, que não converte para a coluna ENUM
+        return Flux.fromIterable(tokens)
+                .concatMap(token -> databaseClient
+                        .sql("INSERT INTO planet_tokens (attribute, token, planet_id) VALUES ('"
+                                + token.getAttribute().name() + "', :token, :planetId)")
+                        .bind("token", token.getToken())
+                        .bind("planetId", token.getPlanetId())
+                        .fetch()
+                        .rowsUpdated())
+                .then();
+    }
+
+    public Mono<PlanetView> findById(Long id) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM planets WHERE id = :id")
+                .bind("id", id)
+                .map(ReactivePlanetRepository::toView)
+                .one();
+    }
+
+    public Mono<PlanetView> findByName(String name) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM planets WHERE name = :name")
+                .bind("name", name)
+                .map(ReactivePlanetRepository::toView)
+                .one();
+    }
+
+    public Flux<PlanetView> findPage(PlanetFilter filter, Long after, int limit) {
+        Map<String, Object> binds = new HashMap<>();
+        String where = makeWhere(filter, after, binds);
+        // O limite já vem limitado pelo serviço, então entra direto no SQL
+        return bindAll(databaseClient.sql("SELECT " + COLUMNS + " FROM planets" + where + " ORDER BY id LIMIT " + limit), binds)
+                .map(ReactivePlanetRepository::toView)
+                .all();
+    }
+
+    public Flux<PlanetView> streamAll(PlanetFilter filter) {
+        Map<String, Object> binds = new HashMap<>();
+        String where = makeWhere(filter, null, binds);
+        return bindAll(databaseClient.sql("SELECT " + COLUMNS + " FROM planets" + where + " ORDER BY id"), binds)
+                .map(ReactivePlanetRepository::toView)
+                .all();
+    }
+
+    public Mono<Long> count(PlanetFilter filter) {
+        Map<String, Object> binds = new HashMap<>();
+        String where = makeWhere(filter, null, binds);
+        return bindAll(databaseClient.sql("SELECT COUNT(*) FROM planets" + where), binds)
+                .map(row -> row.get(0, Long.class))
+                .one();
+    }
+
+    public Mono<Long> deleteById(Long id) {
+        return databaseClient.sql("DELETE FROM planet_tokens WHERE planet_id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated()
+                .then(databaseClient.sql("DELETE FROM planets WHERE id = :id")
+                        .bind("id", id)
+                        .fetch()
+                        .rowsUpdated());
+    }
+
+    // Mesmo plano da consulta JPA: um "id in (postagens do termo)" por termo, mais o "id > after" do cursor
+    private static String makeWhere(PlanetFilter filter, Long after, Map<String, Object> binds) {
+        List<String> predicates = new ArrayList<>();
+        addTokenPredicates(predicates, binds, PlanetToken.Attribute.CLIMATE, filter.climate());
+        addTokenPredicates(predicates, binds, PlanetToken.Attribute.TERRAIN, filter.terrain());
+        if (after != null) {
+            predicates.add("id > :after");
+            binds.put("after", after);
+        }
+        return predicates.isEmpty() ? "" : " WHERE " + String.join(" AND ", predicates);
+    }
+
+    private static void addTokenPredicates(List<String> predicates, Map<String, Object> binds,
+                                           PlanetToken.Attribute attribute, Set<String> tokens) {
+        for (String token : tokens) {
+            String name = "token" + binds.size();
+            predicates.add("id IN (SELECT planet_id FROM planet_tokens WHERE attribute = '" + attribute.name()
+                    + "' AND token = :" + name + ")");
+            binds.put(name, token);
+        }
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindAll(DatabaseClient.GenericExecuteSpec spec,
+                                                             Map<String, Object> binds) {
+        for (Map.Entry<String, Object> bind : binds.entrySet()) {
+            spec = spec.bind(bind.getKey(), bind.getValue());
+        }
+        return spec;
+    }
+
+    private static PlanetView toView(Readable row) {
+        return new PlanetView(row.get("id", Long.class), row.get("name", String.class),
+                row.get("climate", String.class), row.get("terrain", String.class),
+                row.get("version", Long.class), toInstant(row.get("updated_at")));
+    }
+
+    // O MySQL devolve datetime sem fuso (gravado em UTC pelo Hibernate); o H2 devolve timestamp com fuso
+    private static Instant toInstant(Object value) {
+        if (value instanceof OffsetDateTime offsetDateTime) {
+            return offsetDateTime.toInstant();
+        }
+        if (value instanceof LocalDateTime localDateTime) {
+            return localDateTime.toInstant(ZoneOffset.UTC);
+        }
+        return (Instant) value;
+    }
+}
@@ -0,0 +1,79 @@
+package io.mateusnere.swplanetapi.domain;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+// Versão não bloqueante do PlanetService para o perfil reativo. Não passa pelo PlanetCache:
+// o carregamento do cache roda na thread de quem chama, o que bloquearia o event loop
+@Service
+@Profile("reactive")
+public class ReactivePlanetService {
+
+    private final ReactivePlanetRepository planetRepository;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private final PlanetCollectionVersion collectionVersion;
+
+    public ReactivePlanetService(ReactivePlanetRepository planetRepository,
+                                 ReactiveTransactionManager transactionManager,
+                                 PlanetCollectionVersion collectionVersion) {
+        this.planetRepository = planetRepository;
+        this.transactionalOperator = TransactionalOperator.create(transactionManager);
+        this.collectionVersion = collectionVersion;
+    }
+
+    public Mono<Planet> create(Planet planet) {
+        return planetRepository.insert(planet)
+                .flatMap(created -> planetRepository.indexTokens(created).thenReturn(created))
+                .as(transactionalOperator::transactional)
+                .doOnSuccess(created -> collectionVersion.increment());
+    }
+
+    public Mono<PlanetView> getById(Long id) {
+        return planetRepository.findById(id);
+    }
+
+    public Mono<PlanetView> getByName(String name) {
+        return planetRepository.findByName(name);
+    }
+
+    public Mono<PlanetPage> list(String climate, String terrain, Long after, int limit) {
+        int pageSize = Math.clamp(limit, 1, PlanetService.MAX_PAGE_SIZE);
+
+        // Busca um item a mais só para saber se existe próxima página
+        return planetRepository.findPage(PlanetFilter.of(climate, terrain), after, pageSize + 1)
+                .collectList()
+                .map(planets -> {
+                    if (planets.size() <= pageSize) {
+                        return new PlanetPage(planets, null);
+                    }
+                    List<PlanetView> page = planets.subList(0, pageSize);
+                    return new PlanetPage(page, page.getLast().id());
+                });
+    }
+
+    public Flux<PlanetView> stream(String climate, String terrain) {
+        return planetRepository.streamAll(PlanetFilter.of(climate, terrain));
+    }
+
+    public Mono<Long> count(String climate, String terrain) {
+        return planetRepository.count(PlanetFilter.of(climate, terrain));
+    }
+
+    public Mono<Void> remove(Long id) {
+        return planetRepository.deleteById(id)
+                .as(transactionalOperator::transactional)
+                .flatMap(deleted -> deleted == 0
+                        ? Mono.<Void>error(new EmptyResultDataAccessException(1))
+                        : Mono.<Void>empty())
+                .doOnSuccess(ignored -> collectionVersion.increment());
+    }
+}
@@ -0,0 +1,83 @@
+package io.mateusnere.swplanetapi.domain;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+// Leitura das próprias escritas com réplicas: por "planets.replicas.sticky-after-write" depois de criar ou remover
+// um planeta, as leituras desse planeta (por id e por nome) e as listagens vão para o primário, que já tem a
+// escrita. Sem isso uma réplica atrasada devolveria o dado antigo e ele voltaria para os caches logo depois de
+// invalidados. Uma remoção sem o nome conhecido (o planeta não estava nos caches) desvia todas as leituras por
+// nome durante a janela. O desvio vale para a thread atual e é lido pelo ReplicaDataSource ao pegar a conexão
+@Component
+public class RecentWrites {
+
+    private static final ThreadLocal<Boolean> PRIMARY = new ThreadLocal<>();
+
+    private final long windowNanos;
+
+    // Ids (Long) e nomes (String, pela chave do PlanetCache) escritos dentro da janela
+    private final Cache<Object, Boolean> keys;
+
+    private volatile long lastWrite;
+
+    private volatile long lastUnknownName;
+
+    public RecentWrites(@Value("${planets.replicas.sticky-after-write:1s}") Duration window) {
+        this.windowNanos = window.toNanos();
+        this.keys = Caffeine.newBuilder().expireAfterWrite(window).build();
+        this.lastWrite = System.nanoTime() - windowNanos;
+        this.lastUnknownName = lastWrite;
+    }
+
+    public void written(Planet planet) {
+        if (windowNanos == 0) {
+            return;
+        }
+        if (planet.getId() != null) {
+            keys.put(planet.getId(), Boolean.TRUE);
+        }
+        long now = System.nanoTime();
+        if (planet.getName() != null) {
+            keys.put(PlanetCache.nameKey(planet.getName()), Boolean.TRUE);
+        } else {
+            lastUnknownName = now;
+        }
+        lastWrite = now;
+    }
+
+    // Leitura de um planeta pelo id ou pelo nome
+    public <T> T read(Object key, Supplier<T> reader) {
+        boolean recent = key instanceof String name
+                ? keys.getIfPresent(PlanetCache.nameKey(name)) != null || System.nanoTime() - lastUnknownName < windowNanos
+                : keys.getIfPresent(key) != null;
+        return recent ? onPrimary(reader) : reader.get();
+    }
+
+    // Leitura que depende da coleção inteira (páginas, contagem, stream)
+    public <T> T readCollection(Supplier<T> reader) {
+        return System.nanoTime() - lastWrite < windowNanos ? onPrimary(reader) : reader.get();
+    }
+
+    public static <T> T onPrimary(Supplier<T> reader) {
+        Boolean previous = PRIMARY.get();
+        PRIMARY.set(Boolean.TRUE);
+        try {
+            return reader.get();
+        } finally {
+            if (previous == null) {
+                PRIMARY.remove();
+            } else {
+                PRIMARY.set(previous);
+            }
+        }
+    }
+
+    public static boolean primaryRequired() {
+        return PRIMARY.get() != null;
+    }
+}
@@ -0,0 +1,134 @@
+package io.mateusnere.swplanetapi.domain;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Conexões de transações somente leitura vêm das réplicas (em rodízio); todo o resto vem do primário.
+// Precisa ficar atrás de um LazyConnectionDataSourceProxy: a conexão só é pedida no primeiro comando,
+// quando a transação já está marcada como somente leitura.
+// Uma réplica que falha ao entregar conexão fica fora do rodízio por "retryAfter"; sem réplica disponível,
+// a leitura vai para o primário. Leituras logo depois de uma escrita também vão para o primário (RecentWrites)
+public class ReplicaDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaDataSource.class);
+
+    private final DataSource primary;
+
+    private final List<Replica> replicas;
+
+    private final long retryAfterNanos;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final Counter primaryReads;
+
+    private final Counter replicaReads;
+
+    private final Counter writes;
+
+    public ReplicaDataSource(DataSource primary, List<DataSource> replicas, Duration retryAfter, MeterRegistry registry) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.retryAfterNanos = retryAfter.toNanos();
+        this.primaryReads = route(registry, "primary", "read");
+        this.replicaReads = route(registry, "replica", "read");
+        this.writes = route(registry, "primary", "write");
+        Gauge.builder("planets.datasource.replicas.healthy", this, ReplicaDataSource::healthyReplicas)
+                .description("Réplicas no rodízio de leitura")
+                .register(registry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            writes.increment();
+            return primary.getConnection();
+        }
+        if (!RecentWrites.primaryRequired()) {
+            Connection connection = replicaConnection();
+            if (connection != null) {
+                replicaReads.increment();
+                return connection;
+            }
+        }
+        primaryReads.increment();
+        return primary.getConnection();
+    }
+
+    // As réplicas só conhecem as credenciais da própria configuração: com outras credenciais, a conexão vem
+    // sempre do primário
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        (TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? primaryReads : writes).increment();
+        return primary.getConnection(username, password);
+    }
+
+    // Fecha os pools das réplicas; o do primário é um bean próprio
+    @Override
+    public void close() throws Exception {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    public int healthyReplicas() {
+        long now = System.nanoTime();
+        return (int) replicas.stream().filter(replica -> replica.available(now)).count();
+    }
+
+    private static Counter route(MeterRegistry registry, String target, String access) {
+        return Counter.builder("planets.datasource.connections")
+                .description("Conexões entregues por destino (primário ou réplica) e tipo de acesso")
+                .tag("target", target)
+                .tag("access", access)
+                .register(registry);
+    }
+
+    // Tenta cada réplica disponível uma vez, a partir da próxima do rodízio
+    private Connection replicaConnection() {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (!replica.available(System.nanoTime())) {
+                continue;
+            }
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException ex) {
+                replica.downUntil = System.nanoTime() + retryAfterNanos;
+                log.warn("Réplica fora do rodízio por {} ms: {}", retryAfterNanos / 1_000_000, ex.getMessage());
+            }
+        }
+        return null;
+    }
+
+    private static class Replica {
+
+        private final DataSource dataSource;
+
+        private volatile long downUntil = System.nanoTime();
+
+        Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        boolean available(long now) {
+            return now - downUntil >= 0;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package io.mateusnere.swplanetapi.domain;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Réplicas de leitura: ligadas quando "planets.replicas.urls" tem ao menos uma URL. O primário continua sendo o
+// spring.datasource.* (com spring.datasource.hikari.*); cada réplica ganha um pool próprio, com espera curta por
+// conexão para uma réplica fora do ar cair logo no primário. O modo reativo não usa o JDBC nas leituras
+@Configuration(proxyBeanMethods = false)
+@Profile("!reactive")
+@ConditionalOnProperty(name = "planets.replicas.urls")
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class ReplicaDataSourceConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaDataSource replicaDataSource(HikariDataSource primaryDataSource,
+                                               @Value("${planets.replicas.urls}") List<String> urls,
+                                               @Value("${planets.replicas.username:${spring.datasource.username:}}") String username,
+                                               @Value("${planets.replicas.password:${spring.datasource.password:}}") String password,
+                                               @Value("${planets.replicas.pool-size:10}") int poolSize,
+                                               @Value("${planets.replicas.connection-timeout:1s}") Duration connectionTimeout,
+                                               @Value("${planets.replicas.retry-unhealthy-after:10s}") Duration retryAfter,
+                                               MeterRegistry registry) {
+        List<DataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + i);
+            replica.setJdbcUrl(urls.get(i));
+            replica.setUsername(username);
+            replica.setPassword(password);
+            replica.setMaximumPoolSize(poolSize);
+            replica.setConnectionTimeout(connectionTimeout.toMillis());
+            // A aplicação sobe mesmo com uma réplica fora do ar; as leituras vão para o primário até ela voltar
+            replica.setInitializationFailTimeout(-1);
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        return new ReplicaDataSource(primaryDataSource, replicas, retryAfter, registry);
+    }
+
+    // A conexão só é escolhida no primeiro comando, quando a transação já foi marcada como somente leitura
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaDataSource replicaDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaDataSource);
+    }
+}
@@ -0,0 +1,79 @@
+package io.mateusnere.swplanetapi.domain;
+
+import java.util.Locale;
+
+// Tempo de cada fase de uma requisição, acumulado na thread que a atende enquanto o Server-Timing está ligado.
+// O banco soma os comandos do Hibernate (JdbcTimingListener) e as chamadas ao JdbcTemplate.
+// O mapeamento não é medido direto: é o tempo dentro do PlanetRepository que não foi gasto no JDBC,
+// ou seja, principalmente a hidratação das entidades pelo Hibernate
+public final class RequestTiming {
+
+    public enum Phase {
+        DB, MAPPING, SERIALIZATION;
+
+        private final String metric = name().toLowerCase(Locale.ROOT);
+
+        public String metric() {
+            return metric;
+        }
+    }
+
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+
+    private long dbNanos;
+
+    private long repositoryNanos;
+
+    private long serializationNanos;
+
+    private RequestTiming() {
+    }
+
+    public static RequestTiming start() {
+        RequestTiming timing = new RequestTiming();
+        CURRENT.set(timing);
+        return timing;
+    }
+
+    // null quando a requisição não está sendo medida (Server-Timing desligado ou fora de uma requisição)
+    public static RequestTiming current() {
+        return CURRENT.get();
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    public void addDb(long nanos) {
+        dbNanos += nanos;
+    }
+
+    public void addRepository(long nanos) {
+        repositoryNanos += nanos;
+    }
+
+    public void addSerialization(long nanos) {
+        serializationNanos += nanos;
+    }
+
+    public long nanos(Phase phase) {
+        return switch (phase) {
+            case DB -> dbNanos;
+            case MAPPING -> Math.max(0, repositoryNanos - dbNanos);
+            case SERIALIZATION -> serializationNanos;
+        };
+    }
+
+    // Ex.: "db;dur=1.234, mapping;dur=0.210, serialization;dur=0.087" (milissegundos)
+    public String header() {
+        StringBuilder header = new StringBuilder();
+        for (Phase phase : Phase.values()) {
+            if (!header.isEmpty()) {
+                header.append(", ");
+            }
+            header.append(phase.metric).append(";dur=")
+                    .append(String.format(Locale.ROOT, "%.3f", nanos(phase) / 1_000_000.0));
+        }
+        return header.toString();
+    }
+}
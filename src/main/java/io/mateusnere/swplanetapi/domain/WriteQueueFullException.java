@@ -0,0 +1,9 @@
+package io.mateusnere.swplanetapi.domain;
+
+// Fila do group commit cheia: o cliente deve tentar de novo mais tarde
+public class WriteQueueFullException extends RuntimeException {
+
+    public WriteQueueFullException() {
+        super("Fila de gravação cheia");
+    }
+}
@@ -0,0 +1,128 @@
+package io.mateusnere.swplanetapi.web;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Limite de concorrência adaptativo pelo gradiente da latência (a ideia do Gradient2 do concurrency-limits).
+// A cada janela, a latência média da janela (curta) é comparada com uma média longa: enquanto a curta não passa
+// de RTT_TOLERANCE vezes a longa, o limite cresce (mais sqrt(limite)); quando passa, ele cai na proporção.
+// O limite não cresce se a janela não chegou perto dele (tráfego baixo não diz nada sobre a capacidade).
+// Uma janela com falhas (5xx, exceção) não olha a latência: o limite cai DROP_BACKOFF, como no AIMD.
+// Sem synchronized: quem fecha a janela é a requisição que consegue o tryLock, e uma virtual thread nunca
+// fica presa esperando o lock
+class AdaptiveLimiter {
+
+    private static final double RTT_TOLERANCE = 1.5;
+
+    private static final double SMOOTHING = 0.2;
+
+    private static final double DROP_BACKOFF = 0.9;
+
+    // Média longa de umas 600 janelas
+    private static final double LONG_RTT_ALPHA = 2.0 / 601;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final long windowNanos;
+
+    private final int minSamples;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+
+    private final LongAdder rttSum = new LongAdder();
+
+    private final LongAdder samples = new LongAdder();
+
+    private final LongAdder drops = new LongAdder();
+
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile long windowStart = System.nanoTime();
+
+    private double longRtt;
+
+    AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, Duration window, int minSamples) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.windowNanos = window.toNanos();
+        this.minSamples = minSamples;
+    }
+
+    boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        maxInFlight.accumulateAndGet(current + 1, Math::max);
+        return true;
+    }
+
+    // Falhas não entram na latência (uma falha rápida puxaria o limite para cima); contam como queda
+    void release(long rttNanos, boolean success) {
+        inFlight.decrementAndGet();
+        if (success) {
+            rttSum.add(rttNanos);
+            samples.increment();
+        } else {
+            drops.increment();
+        }
+        if (System.nanoTime() - windowStart >= windowNanos && samples.sum() + drops.sum() >= minSamples
+                && lock.tryLock()) {
+            try {
+                closeWindow();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    int limit() {
+        return (int) limit;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    private void closeWindow() {
+        long count = samples.sumThenReset();
+        long sum = rttSum.sumThenReset();
+        long dropped = drops.sumThenReset();
+        int peak = maxInFlight.getAndSet(inFlight.get());
+        windowStart = System.nanoTime();
+        if (dropped > 0) {
+            limit = Math.max(minLimit, limit * DROP_BACKOFF);
+            return;
+        }
+        if (count == 0) {
+            return;
+        }
+
+        double shortRtt = (double) sum / count;
+        longRtt = longRtt == 0 ? shortRtt : longRtt * (1 - LONG_RTT_ALPHA) + shortRtt * LONG_RTT_ALPHA;
+        // Depois de uma sobrecarga a média longa fica alta e atrasaria a volta ao normal
+        if (longRtt > shortRtt * 2) {
+            longRtt = shortRtt * 2;
+        }
+
+        double current = limit;
+        double gradient = Math.clamp(RTT_TOLERANCE * longRtt / shortRtt, 0.5, 1.0);
+        double next = current * gradient + Math.sqrt(current);
+        if (next > current && peak < current / 2) {
+            return;
+        }
+        limit = Math.clamp(current * (1 - SMOOTHING) + next * SMOOTHING, minLimit, maxLimit);
+    }
+}
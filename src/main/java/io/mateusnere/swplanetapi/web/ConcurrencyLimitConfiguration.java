@@ -0,0 +1,41 @@
+package io.mateusnere.swplanetapi.web;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+// Limites de concorrência adaptativos nas rotas de /planets (planets.concurrency.*), só com
+// planets.concurrency.enabled=true
+@Configuration(proxyBeanMethods = false)
+@Profile("!reactive")
+@ConditionalOnProperty(name = "planets.concurrency.enabled", havingValue = "true")
+public class ConcurrencyLimitConfiguration implements WebMvcConfigurer {
+
+    private final ConcurrencyLimitInterceptor interceptor;
+
+    public ConcurrencyLimitConfiguration(MeterRegistry registry,
+                                         @Value("${planets.concurrency.initial-limit:20}") int initialLimit,
+                                         @Value("${planets.concurrency.min-limit:4}") int minLimit,
+                                         @Value("${planets.concurrency.max-limit:200}") int maxLimit,
+                                         @Value("${planets.concurrency.window:1s}") Duration window,
+                                         @Value("${planets.concurrency.low-priority-cutoff:0.7}") double lowPriorityCutoff) {
+        this.interceptor = new ConcurrencyLimitInterceptor(registry, initialLimit, minLimit, maxLimit, window, lowPriorityCutoff);
+    }
+
+    @Bean
+    ConcurrencyLimitInterceptor concurrencyLimitInterceptor() {
+        return interceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(interceptor).addPathPatterns("/planets", "/planets/**");
+    }
+}
@@ -0,0 +1,9 @@
+package io.mateusnere.swplanetapi.web;
+
+// Requisição recusada pelo ConcurrencyLimitInterceptor: o cliente deve tentar de novo mais tarde
+public class ConcurrencyLimitExceededException extends RuntimeException {
+
+    public ConcurrencyLimitExceededException() {
+        super("Limite de requisições simultâneas atingido");
+    }
+}
@@ -0,0 +1,146 @@
+package io.mateusnere.swplanetapi.web;
+
+import io.mateusnere.swplanetapi.domain.PlanetMetrics.Operation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.util.StringUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Um AdaptiveLimiter por rota do PlanetController (o @PlanetRoute do método): acima do limite, 503 na hora.
+// Enquanto uma rota barata usa mais que "low-priority-cutoff" do limite dela, as rotas caras são recusadas
+class ConcurrencyLimitInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String PERMIT = ConcurrencyLimitInterceptor.class.getName() + ".permit";
+
+    // Cada rota diz também a operação das métricas de resultado (GeneralExceptionHandler)
+    enum Route {
+        GET_BY_ID(true, Operation.GET_BY_ID), GET_BY_NAME(true, Operation.GET_BY_NAME), LOOKUP(true, Operation.LOOKUP),
+        LIST(true, Operation.LIST), LIST_UNFILTERED(false, Operation.LIST), STREAM(false, Operation.STREAM),
+        CREATE(false, Operation.CREATE), CREATE_BATCH(false, Operation.CREATE_ALL), UPSERT(false, Operation.UPSERT),
+        REMOVE(false, Operation.REMOVE);
+
+        private final boolean highPriority;
+
+        private final Operation operation;
+
+        private final String tag = name().toLowerCase(Locale.ROOT).replace('_', '-');
+
+        Route(boolean highPriority, Operation operation) {
+            this.highPriority = highPriority;
+            this.operation = operation;
+        }
+
+        Operation operation() {
+            return operation;
+        }
+    }
+
+    private final Map<Route, AdaptiveLimiter> limiters = new EnumMap<>(Route.class);
+
+    private final Map<Route, Counter> rejectedByLimit = new EnumMap<>(Route.class);
+
+    private final Map<Route, Counter> rejectedByPriority = new EnumMap<>(Route.class);
+
+    private final double lowPriorityCutoff;
+
+    ConcurrencyLimitInterceptor(MeterRegistry registry, int initialLimit, int minLimit, int maxLimit,
+                                Duration window, double lowPriorityCutoff) {
+        this.lowPriorityCutoff = lowPriorityCutoff;
+        for (Route route : Route.values()) {
+            AdaptiveLimiter limiter = new AdaptiveLimiter(initialLimit, minLimit, maxLimit, window, 10);
+            limiters.put(route, limiter);
+            Gauge.builder("planets.concurrency.limit", limiter, AdaptiveLimiter::limit)
+                    .description("Limite atual de requisições simultâneas por rota")
+                    .tag("route", route.tag)
+                    .register(registry);
+            Gauge.builder("planets.concurrency.in-flight", limiter, AdaptiveLimiter::inFlight)
+                    .description("Requisições em andamento por rota")
+                    .tag("route", route.tag)
+                    .register(registry);
+            rejectedByLimit.put(route, rejected(registry, route, "limit"));
+            rejectedByPriority.put(route, rejected(registry, route, "priority"));
+        }
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // O despacho de volta de uma resposta assíncrona (stream) já tem a vaga do despacho original
+        if (request.getDispatcherType() == DispatcherType.ASYNC || !(handler instanceof HandlerMethod method)) {
+            return true;
+        }
+        Route route = route(method, request);
+        if (route == null) {
+            return true;
+        }
+
+        if (!route.highPriority && highPriorityUnderPressure()) {
+            rejectedByPriority.get(route).increment();
+            throw new ConcurrencyLimitExceededException();
+        }
+        AdaptiveLimiter limiter = limiters.get(route);
+        if (!limiter.tryAcquire()) {
+            rejectedByLimit.get(route).increment();
+            throw new ConcurrencyLimitExceededException();
+        }
+        request.setAttribute(PERMIT, new Permit(limiter, System.nanoTime()));
+        return true;
+    }
+
+    // Chamado no fim da requisição, ou no fim do despacho assíncrono quando a resposta é um stream
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.isAsyncStarted() || !(request.getAttribute(PERMIT) instanceof Permit permit)) {
+            return;
+        }
+        request.removeAttribute(PERMIT);
+        permit.limiter().release(System.nanoTime() - permit.start(), ex == null && response.getStatus() < 500);
+    }
+
+    AdaptiveLimiter limiter(Route route) {
+        return limiters.get(route);
+    }
+
+    private boolean highPriorityUnderPressure() {
+        for (Map.Entry<Route, AdaptiveLimiter> entry : limiters.entrySet()) {
+            AdaptiveLimiter limiter = entry.getValue();
+            if (entry.getKey().highPriority && limiter.inFlight() >= lowPriorityCutoff * limiter.limit()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // A rota vem do @PlanetRoute do método; a listagem sem filtro conta como LIST_UNFILTERED
+    static Route route(HandlerMethod method, HttpServletRequest request) {
+        PlanetRoute annotation = method.getMethodAnnotation(PlanetRoute.class);
+        if (annotation == null) {
+            return null;
+        }
+        if (annotation.value() == Route.LIST && !StringUtils.hasText(request.getParameter("climate"))
+                && !StringUtils.hasText(request.getParameter("terrain"))) {
+            return Route.LIST_UNFILTERED;
+        }
+        return annotation.value();
+    }
+
+    private static Counter rejected(MeterRegistry registry, Route route, String reason) {
+        return Counter.builder("planets.concurrency.rejected")
+                .description("Requisições recusadas pelo limite da rota ou para dar prioridade às rotas baratas")
+                .tag("route", route.tag)
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    private record Permit(AdaptiveLimiter limiter, long start) {
+    }
+}
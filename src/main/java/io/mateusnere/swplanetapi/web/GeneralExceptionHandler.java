@@ -1,32 +1,77 @@
 package io.mateusnere.swplanetapi.web;
 
+import io.mateusnere.swplanetapi.domain.PlanetMetrics;
+import io.mateusnere.swplanetapi.domain.PlanetMetrics.Outcome;
+import io.mateusnere.swplanetapi.domain.WriteQueueFullException;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
+import java.lang.reflect.Method;
+
 @ControllerAdvice
+@Profile("!reactive")
 public class GeneralExceptionHandler extends ResponseEntityExceptionHandler {
 
+    private final PlanetMetrics metrics;
+
+    public GeneralExceptionHandler(PlanetMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     @Override
     protected ResponseEntity<Object> handleMethodArgumentNotValid(MethodArgumentNotValidException ex, HttpHeaders headers, HttpStatusCode status, WebRequest request) {
+        record(ex.getParameter().getMethod(), Outcome.INVALID);
         return super.handleMethodArgumentNotValid(ex, headers, HttpStatus.UNPROCESSABLE_ENTITY, request);
     }
 
     @ExceptionHandler(DataIntegrityViolationException.class)
-    private ResponseEntity<Object> handleConflict(DataIntegrityViolationException ex) {
+    private ResponseEntity<Object> handleConflict(DataIntegrityViolationException ex, HandlerMethod handler) {
+        record(handler.getMethod(), Outcome.CONFLICT);
         return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
     }
 
     @ExceptionHandler(EmptyResultDataAccessException.class)
-    private ResponseEntity<Object> handleBadRequest(EmptyResultDataAccessException ex) {
+    private ResponseEntity<Object> handleBadRequest(EmptyResultDataAccessException ex, HandlerMethod handler) {
+        record(handler.getMethod(), Outcome.NOT_FOUND);
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body("ID informado não existe!");
     }
+
+    // Sem conexão disponível no pool dentro do connection-timeout, fila do group commit cheia ou limite de
+    // concorrência da rota atingido: o cliente deve tentar de novo mais tarde
+    @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class,
+            WriteQueueFullException.class, ConcurrencyLimitExceededException.class})
+    private ResponseEntity<Object> handleUnavailable(Exception ex, HandlerMethod handler) {
+        record(handler.getMethod(), Outcome.UNAVAILABLE);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Serviço sobrecarregado, tente novamente.");
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    private ResponseEntity<Object> handleInvalidCursor(InvalidCursorException ex, HandlerMethod handler) {
+        record(handler.getMethod(), Outcome.BAD_REQUEST);
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+    }
+
+    // A operação vem do @PlanetRoute do método do PlanetController
+    private void record(Method method, Outcome outcome) {
+        PlanetRoute route = method == null ? null : AnnotationUtils.findAnnotation(method, PlanetRoute.class);
+        if (route != null) {
+            metrics.outcome(route.value().operation(), outcome);
+        }
+    }
 }
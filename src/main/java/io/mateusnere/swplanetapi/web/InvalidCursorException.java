@@ -0,0 +1,8 @@
+package io.mateusnere.swplanetapi.web;
+
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String cursor) {
+        super("Cursor inválido: " + cursor);
+    }
+}
@@ -1,54 +1,248 @@
 package io.mateusnere.swplanetapi.web;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.mateusnere.swplanetapi.domain.Planet;
+import io.mateusnere.swplanetapi.domain.PlanetBatchResult;
+import io.mateusnere.swplanetapi.domain.PlanetCollectionVersion;
+import io.mateusnere.swplanetapi.domain.PlanetGroupCommit;
+import io.mateusnere.swplanetapi.domain.PlanetJsonCache;
 import io.mateusnere.swplanetapi.domain.PlanetService;
+import io.mateusnere.swplanetapi.domain.PlanetUpsert;
+import io.mateusnere.swplanetapi.domain.PlanetView;
+import io.mateusnere.swplanetapi.web.ConcurrencyLimitInterceptor.Route;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Optional;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/planets")
 public class PlanetController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    public static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(APPLICATION_SMILE_VALUE);
+
+    private static final List<MediaType> BINARY_TYPES = List.of(MediaType.APPLICATION_CBOR, APPLICATION_SMILE);
+
     private final PlanetService planetService;
 
-    public PlanetController(PlanetService planetService) {
+    private final ObjectMapper objectMapper;
+
+    private final PlanetCollectionVersion collectionVersion;
+
+    private final PlanetJsonCache jsonCache;
+
+    // Só existe com planets.group-commit.enabled=true
+    private final PlanetGroupCommit groupCommit;
+
+    public PlanetController(PlanetService planetService, ObjectMapper objectMapper,
+                            PlanetCollectionVersion collectionVersion, PlanetJsonCache jsonCache,
+                            ObjectProvider<PlanetGroupCommit> groupCommit) {
         this.planetService = planetService;
+        this.objectMapper = objectMapper;
+        this.collectionVersion = collectionVersion;
+        this.jsonCache = jsonCache;
+        this.groupCommit = groupCommit.getIfAvailable();
     }
 
     @PostMapping
+    @PlanetRoute(Route.CREATE)
     public ResponseEntity<Planet> create(@RequestBody @Valid Planet planet) {
-        Planet planetCreated = planetService.create(planet);
+        Planet planetCreated = groupCommit != null ? groupCommit.create(planet) : planetService.create(planet);
         return ResponseEntity.status(HttpStatus.CREATED).body(planetCreated);
     }
 
+    // Cria (201) ou atualiza (200) o planeta com esse nome numa instrução só do banco
+    @PutMapping("/name/{name}")
+    @PlanetRoute(Route.UPSERT)
+    public ResponseEntity<Planet> upsertByName(@PathVariable("name") String name, @RequestBody @Valid PlanetUpsertRequest planet) {
+        PlanetUpsert upsert = planetService.upsert(new Planet(name, planet.climate(), planet.terrain()));
+        return ResponseEntity.status(upsert.created() ? HttpStatus.CREATED : HttpStatus.OK).body(upsert.planet());
+    }
+
+    @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    @PlanetRoute(Route.CREATE_BATCH)
+    public ResponseEntity<List<PlanetBatchResult>> createBatch(@RequestBody List<Planet> planets) {
+        return ResponseEntity.ok(planetService.createAll(planets));
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @PlanetRoute(Route.CREATE_BATCH)
+    public ResponseEntity<List<PlanetBatchResult>> createBatchNdjson(InputStream body) throws IOException {
+        try (MappingIterator<Planet> planets = objectMapper.readerFor(Planet.class).readValues(body)) {
+            return ResponseEntity.ok(planetService.createAll(planets.readAll()));
+        }
+    }
+
+    // Em JSON (o padrão), as rotas GET devolvem os bytes já serializados do PlanetJsonCache, copiados para a
+    // resposta sem passar pelo Jackson. CBOR e Smile, quando pedidos no Accept, saem pelos conversores do Spring
     @GetMapping("/{id}")
-    public ResponseEntity<Planet> getById(@PathVariable("id") Long id) {
-        return planetService.getById(id)
-                .map(ResponseEntity::ok)
-                .orElseGet(() -> ResponseEntity.notFound().build());
+    @PlanetRoute(Route.GET_BY_ID)
+    public ResponseEntity<?> getById(@PathVariable("id") Long id, WebRequest request) {
+        return okWithValidators(planetService.getById(id), request);
     }
 
     @GetMapping("/name/{name}")
-    public ResponseEntity<Planet> getByName(@PathVariable("name") String name) {
-        return planetService.getByName(name)
-                .map(ResponseEntity::ok)
-                .orElseGet(() -> ResponseEntity.notFound().build());
+    @PlanetRoute(Route.GET_BY_NAME)
+    public ResponseEntity<?> getByName(@PathVariable("name") String name, WebRequest request) {
+        return okWithValidators(planetService.getByName(name), request);
     }
 
     @GetMapping
-    public ResponseEntity<List<Planet>> getPlanets(@RequestParam(required = false) String climate,
-                                                   @RequestParam(required = false) String terrain) {
-        List<Planet> planets = planetService.list(climate, terrain);
-        return ResponseEntity.ok(planets);
+    @PlanetRoute(Route.LIST)
+    public ResponseEntity<?> getPlanets(@RequestParam(required = false) String climate,
+                                        @RequestParam(required = false) String terrain,
+                                        @RequestParam(required = false) String after,
+                                        @RequestParam(defaultValue = "" + PlanetService.DEFAULT_PAGE_SIZE) int limit,
+                                        @RequestParam(defaultValue = "false") boolean total,
+                                        WebRequest request) {
+        MediaType binaryType = binaryType(request);
+
+        // A versão da coleção só muda quando há escrita, então o 304 sai sem consultar o banco. Só pelo ETag: sem
+        // Last-Modified, um If-Modified-Since sozinho não valida a página
+        if (request.checkNotModified(etag(collectionVersion.current(), binaryType))) {
+            return null;
+        }
+
+        Long cursor = PlanetCursor.decode(after);
+        PlanetJsonCache.EncodedPage page = jsonCache.page(climate, terrain, cursor, limit,
+                () -> planetService.list(climate, terrain, cursor, limit));
+
+        // O corpo continua sendo a lista de planetas; a navegação entre páginas vai nos headers
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT);
+        if (page.next() != null) {
+            response.header(NEXT_CURSOR_HEADER, PlanetCursor.encode(page.next()));
+        }
+        if (total) {
+            response.header(TOTAL_COUNT_HEADER, String.valueOf(planetService.count(climate, terrain)));
+        }
+        return binaryType != null
+                ? response.contentType(binaryType).body(page.planets())
+                : response.contentType(MediaType.APPLICATION_JSON).body(page.json());
+    }
+
+    // Vários planetas numa requisição só. Chaves que não existem vêm em missingIds/missingNames, sem 404
+    @GetMapping(params = "ids")
+    @PlanetRoute(Route.LOOKUP)
+    public ResponseEntity<?> getPlanetsByIds(@RequestParam("ids") List<Long> ids) {
+        return lookup(new PlanetLookupRequest(ids, null));
+    }
+
+    @PostMapping(value = "/lookup", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    @PlanetRoute(Route.LOOKUP)
+    public ResponseEntity<?> lookup(@RequestBody PlanetLookupRequest lookup) {
+        if (lookup.size() > PlanetService.MAX_LOOKUP_KEYS) {
+            return ResponseEntity.badRequest().body("Informe no máximo " + PlanetService.MAX_LOOKUP_KEYS + " ids e nomes.");
+        }
+        return ResponseEntity.ok(planetService.lookup(lookup.ids(), lookup.names()));
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PlanetRoute(Route.STREAM)
+    public ResponseEntity<StreamingResponseBody> streamPlanets(@RequestParam(required = false) String climate,
+                                                               @RequestParam(required = false) String terrain) {
+        // Cada planeta é escrito direto no corpo da resposta assim que sai do banco, um JSON por linha
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+                planetService.stream(climate, terrain, planet -> {
+                    try {
+                        objectMapper.writeValue(generator, planet);
+                        generator.writeRaw('\n');
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
     @DeleteMapping("{id}")
+    @PlanetRoute(Route.REMOVE)
     public ResponseEntity<Void> deletePlanet(@PathVariable("id") Long id) {
         planetService.remove(id);
         return ResponseEntity.noContent().build();
     }
+
+    // O checkNotModified escreve o ETag na resposta e, para um If-None-Match compatível, o 304 sai sem gerar o
+    // JSON do planeta. Só pelo ETag da versão, como na coleção: o Last-Modified tem precisão de segundo, e um
+    // If-Modified-Since sozinho daria 304 para uma escrita no mesmo segundo
+    private ResponseEntity<?> okWithValidators(Optional<PlanetView> found, WebRequest request) {
+        if (found.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        PlanetView planet = found.get();
+        MediaType binaryType = binaryType(request);
+        if (request.checkNotModified(etag(planet.id() + "-" + planet.version(), binaryType))) {
+            return null;
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT);
+        return binaryType != null
+                ? response.contentType(binaryType).body(planet)
+                : response.contentType(MediaType.APPLICATION_JSON).body(jsonCache.planet(planet));
+    }
+
+    // O formato binário preferido no Accept, ou null quando o cliente aceita JSON (inclusive */* ou sem Accept).
+    // Entre tipos com a mesma qualidade vale a ordem em que aparecem
+    private static MediaType binaryType(WebRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null) {
+            return null;
+        }
+
+        List<MediaType> accepted;
+        try {
+            accepted = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        } catch (InvalidMediaTypeException ex) {
+            return null;
+        }
+        accepted.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+
+        for (MediaType type : accepted) {
+            if (type.getQualityValue() == 0) {
+                continue;
+            }
+            if (MediaType.APPLICATION_JSON.isCompatibleWith(type)) {
+                return null;
+            }
+            for (MediaType binary : BINARY_TYPES) {
+                if (binary.isCompatibleWith(type)) {
+                    return binary;
+                }
+            }
+        }
+        return null;
+    }
+
+    // Cada formato é uma representação diferente, então precisa de um ETag próprio. O ETag é fraco porque
+    // identifica a versão e não os bytes: o mesmo planeta pode sair comprimido ou não, e o Tomcat não comprime
+    // respostas com ETag forte. O If-None-Match já é comparado de forma fraca, então o 304 continua igual
+    private static String etag(String version, MediaType binaryType) {
+        return "W/\"" + version + (binaryType == null ? "" : "-" + binaryType.getSubtype()) + "\"";
+    }
 }
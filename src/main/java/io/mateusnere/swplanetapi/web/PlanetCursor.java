@@ -0,0 +1,27 @@
+package io.mateusnere.swplanetapi.web;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// O cursor é opaco para o cliente: apenas o id do último planeta da página codificado em Base64
+public class PlanetCursor {
+
+    private PlanetCursor() {
+    }
+
+    public static String encode(Long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.valueOf(id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Long decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.valueOf(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+}
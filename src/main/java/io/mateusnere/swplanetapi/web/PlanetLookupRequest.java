@@ -0,0 +1,17 @@
+package io.mateusnere.swplanetapi.web;
+
+import java.util.List;
+import java.util.Objects;
+
+// Corpo do POST /planets/lookup: ids e/ou nomes, em qualquer quantidade até PlanetService.MAX_LOOKUP_KEYS
+public record PlanetLookupRequest(List<Long> ids, List<String> names) {
+
+    public PlanetLookupRequest {
+        ids = ids == null ? List.of() : ids.stream().filter(Objects::nonNull).toList();
+        names = names == null ? List.of() : names.stream().filter(name -> name != null && !name.isBlank()).toList();
+    }
+
+    int size() {
+        return ids.size() + names.size();
+    }
+}
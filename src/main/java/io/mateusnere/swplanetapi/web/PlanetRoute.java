@@ -0,0 +1,17 @@
+package io.mateusnere.swplanetapi.web;
+
+import io.mateusnere.swplanetapi.web.ConcurrencyLimitInterceptor.Route;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Rota de um método do PlanetController, lida pelo ConcurrencyLimitInterceptor (limite) e pelo
+// GeneralExceptionHandler (operação das métricas). Um método novo sem a anotação falha no ConcurrencyLimitTest
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@interface PlanetRoute {
+
+    Route value();
+}
@@ -0,0 +1,7 @@
+package io.mateusnere.swplanetapi.web;
+
+import jakarta.validation.constraints.NotEmpty;
+
+// Corpo do PUT /planets/name/{name}: o nome vem do caminho
+public record PlanetUpsertRequest(@NotEmpty String climate, @NotEmpty String terrain) {
+}
@@ -0,0 +1,103 @@
+package io.mateusnere.swplanetapi.web;
+
+import io.mateusnere.swplanetapi.domain.Planet;
+import io.mateusnere.swplanetapi.domain.PlanetCollectionVersion;
+import io.mateusnere.swplanetapi.domain.PlanetService;
+import io.mateusnere.swplanetapi.domain.PlanetView;
+import io.mateusnere.swplanetapi.domain.ReactivePlanetService;
+import jakarta.validation.Valid;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static io.mateusnere.swplanetapi.web.PlanetController.NEXT_CURSOR_HEADER;
+import static io.mateusnere.swplanetapi.web.PlanetController.TOTAL_COUNT_HEADER;
+
+// Mesmo contrato HTTP do PlanetController, atendido pelo WebFlux sobre R2DBC no perfil reativo
+@RestController
+@RequestMapping("/planets")
+@Profile("reactive")
+public class ReactivePlanetController {
+
+    private final ReactivePlanetService planetService;
+
+    private final PlanetCollectionVersion collectionVersion;
+
+    public ReactivePlanetController(ReactivePlanetService planetService, PlanetCollectionVersion collectionVersion) {
+        this.planetService = planetService;
+        this.collectionVersion = collectionVersion;
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<Planet>> create(@RequestBody @Valid Planet planet) {
+        return planetService.create(planet)
+                .map(planetCreated -> ResponseEntity.status(HttpStatus.CREATED).body(planetCreated));
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<PlanetView>> getById(@PathVariable("id") Long id) {
+        return planetService.getById(id)
+                .map(this::okWithValidators)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/name/{name}")
+    public Mono<ResponseEntity<PlanetView>> getByName(@PathVariable("name") String name) {
+        return planetService.getByName(name)
+                .map(this::okWithValidators)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping
+    public Mono<ResponseEntity<List<PlanetView>>> getPlanets(@RequestParam(required = false) String climate,
+                                                         @RequestParam(required = false) String terrain,
+                                                         @RequestParam(required = false) String after,
+                                                         @RequestParam(defaultValue = "" + PlanetService.DEFAULT_PAGE_SIZE) int limit,
+                                                         @RequestParam(defaultValue = "false") boolean total,
+                                                         ServerWebExchange exchange) {
+        if (exchange.checkNotModified(collectionVersion.current())) {
+            return Mono.empty();
+        }
+
+        Long cursor = PlanetCursor.decode(after);
+        Mono<Long> count = total ? planetService.count(climate, terrain) : Mono.just(-1L);
+
+        // Os headers de navegação precisam estar prontos antes do corpo, então a página é montada inteira
+        return planetService.list(climate, terrain, cursor, limit)
+                .zipWith(count, (page, totalCount) -> {
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+                    if (page.next() != null) {
+                        response.header(NEXT_CURSOR_HEADER, PlanetCursor.encode(page.next()));
+                    }
+                    if (total) {
+                        response.header(TOTAL_COUNT_HEADER, String.valueOf(totalCount));
+                    }
+                    return response.body(page.planets());
+                });
+    }
+
+    // O WebFlux escreve cada planeta numa linha assim que ele sai do banco, respeitando a demanda do cliente
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<PlanetView> streamPlanets(@RequestParam(required = false) String climate,
+                                      @RequestParam(required = false) String terrain) {
+        return planetService.stream(climate, terrain);
+    }
+
+    @DeleteMapping("{id}")
+    public Mono<ResponseEntity<Void>> deletePlanet(@PathVariable("id") Long id) {
+        return planetService.remove(id)
+                .then(Mono.just(ResponseEntity.noContent().build()));
+    }
+
+    // O mesmo ETag fraco do JSON no PlanetController, sem Last-Modified: o 304 sai só pela versão
+    private ResponseEntity<PlanetView> okWithValidators(PlanetView planet) {
+        return ResponseEntity.ok().eTag("W/\"" + planet.id() + "-" + planet.version() + "\"").body(planet);
+    }
+}
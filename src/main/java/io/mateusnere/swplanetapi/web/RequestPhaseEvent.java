@@ -0,0 +1,32 @@
+package io.mateusnere.swplanetapi.web;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Evento JFR com o tempo de uma fase (db, mapping, serialization) de uma requisição, emitido no fim dela.
+// Ex.: jcmd <pid> JFR.start name=planets settings=profile e depois JFR.dump name=planets filename=planets.jfr
+@Name("io.mateusnere.swplanetapi.RequestPhase")
+@Label("Request Phase")
+@Category("SW Planet API")
+@Description("Tempo gasto numa fase da requisição")
+@StackTrace(false)
+class RequestPhaseEvent extends Event {
+
+    @Label("Method")
+    String method;
+
+    @Label("URI")
+    String uri;
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long time;
+}
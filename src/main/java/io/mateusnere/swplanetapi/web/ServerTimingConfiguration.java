@@ -0,0 +1,95 @@
+package io.mateusnere.swplanetapi.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.mateusnere.swplanetapi.domain.JdbcTimingListener;
+import io.mateusnere.swplanetapi.domain.RequestTiming;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Modo de diagnóstico (planets.server-timing.enabled=true): cada resposta traz o header Server-Timing com o
+ * tempo de banco, de mapeamento das entidades e de serialização, e cada fase vira um evento JFR.
+ * Desligado, nenhum desses beans existe e o caminho da requisição não muda
+ * */
+@Configuration(proxyBeanMethods = false)
+@Profile("!reactive")
+@ConditionalOnProperty(name = "planets.server-timing.enabled", havingValue = "true")
+public class ServerTimingConfiguration {
+
+    @Bean
+    ServerTimingFilter serverTimingFilter() {
+        return new ServerTimingFilter();
+    }
+
+    // Substitui o conversor JSON do Spring Boot, que só é criado quando não há outro
+    @Bean
+    MappingJackson2HttpMessageConverter serverTimingJacksonConverter(ObjectMapper objectMapper) {
+        return new ServerTimingJacksonConverter(objectMapper);
+    }
+
+    @Bean
+    HibernatePropertiesCustomizer jdbcTimingListener() {
+        return properties -> properties.put(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER, JdbcTimingListener.class.getName());
+    }
+
+    // O JdbcTemplate (criação em lote, upsert, termos e registro de alterações) não passa pelos eventos de sessão
+    // do Hibernate: cada chamada ao bean entra inteira no tempo de banco. As chamadas internas do JdbcTemplate
+    // vão direto ao objeto original, então nada é contado duas vezes
+    @Bean
+    static BeanPostProcessor jdbcTemplateTimingPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof JdbcTemplate)) {
+                    return bean;
+                }
+                ProxyFactory proxy = new ProxyFactory(bean);
+                proxy.setProxyTargetClass(true);
+                proxy.addAdvice((MethodInterceptor) invocation -> {
+                    RequestTiming timing = RequestTiming.current();
+                    if (timing == null) {
+                        return invocation.proceed();
+                    }
+                    long start = System.nanoTime();
+                    try {
+                        return invocation.proceed();
+                    } finally {
+                        timing.addDb(System.nanoTime() - start);
+                    }
+                });
+                return proxy.getProxy();
+            }
+        };
+    }
+
+    // O mesmo gancho que o Actuator usa para as métricas spring.data.repository.invocations
+    @Bean
+    static BeanPostProcessor repositoryTimingPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> repositoryFactory) {
+                    repositoryFactory.addRepositoryFactoryCustomizer(factory -> factory.addInvocationListener(invocation -> {
+                        RequestTiming timing = RequestTiming.current();
+                        if (timing != null) {
+                            timing.addRepository(invocation.getDuration(TimeUnit.NANOSECONDS));
+                        }
+                    }));
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,98 @@
+package io.mateusnere.swplanetapi.web;
+
+import io.mateusnere.swplanetapi.domain.RequestTiming;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+// Abre a medição das fases no começo da requisição, escreve o header Server-Timing no último momento
+// antes de a resposta ser enviada e, no fim, registra cada fase como evento JFR
+class ServerTimingFilter extends OncePerRequestFilter {
+
+    static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestTiming timing = RequestTiming.start();
+        TimingResponse timingResponse = new TimingResponse(response, timing);
+        try {
+            chain.doFilter(request, timingResponse);
+        } finally {
+            RequestTiming.clear();
+            timingResponse.writeHeader();
+            commitEvents(request, timing);
+        }
+    }
+
+    private void commitEvents(HttpServletRequest request, RequestTiming timing) {
+        for (RequestTiming.Phase phase : RequestTiming.Phase.values()) {
+            RequestPhaseEvent event = new RequestPhaseEvent();
+            if (event.isEnabled()) {
+                event.method = request.getMethod();
+                event.uri = request.getRequestURI();
+                event.phase = phase.metric();
+                event.time = timing.nanos(phase);
+                event.commit();
+            }
+        }
+    }
+
+    // O corpo JSON só é pedido depois de serializado (ServerTimingJacksonConverter), então o header escrito
+    // aqui já tem as três fases; respostas sem corpo o recebem no flush ou no fim do filtro
+    private static class TimingResponse extends HttpServletResponseWrapper {
+
+        private final RequestTiming timing;
+
+        private boolean written;
+
+        TimingResponse(HttpServletResponse response, RequestTiming timing) {
+            super(response);
+            this.timing = timing;
+        }
+
+        void writeHeader() {
+            if (!written && !isCommitted()) {
+                setHeader(SERVER_TIMING_HEADER, timing.header());
+            }
+            written = true;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeHeader();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeHeader();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeHeader();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeHeader();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeHeader();
+            super.sendError(sc);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+-- Mesmo schema de schema-mysql.sql, para o H2 (testes e benchmark de subida)
+CREATE TABLE IF NOT EXISTS planets (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    name VARCHAR(255) NOT NULL,
+    climate VARCHAR(255) NOT NULL,
+    terrain VARCHAR(255) NOT NULL,
+    version BIGINT DEFAULT 0 NOT NULL,
+    updated_at TIMESTAMP(6) WITH TIME ZONE,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_planets_name UNIQUE (name)
+);
+
+CREATE TABLE IF NOT EXISTS planet_tokens (
+    attribute VARCHAR(16) NOT NULL,
+    token VARCHAR(255) NOT NULL,
+    planet_id BIGINT NOT NULL,
+    PRIMARY KEY (attribute, token, planet_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_planet_tokens_planet ON planet_tokens (planet_id);
+
+CREATE TABLE IF NOT EXISTS planet_changes (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    planet_id BIGINT NOT NULL,
+    name VARCHAR(255),
+    origin VARCHAR(36) NOT NULL,
+    changed_at TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_planet_changes_changed_at ON planet_changes (changed_at);
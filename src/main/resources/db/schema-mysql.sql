@@ -0,0 +1,30 @@
+-- Schema gerenciado do perfil fast-startup (o Hibernate não inspeciona nem altera o banco nesse perfil).
+-- Deve acompanhar as entidades Planet, PlanetToken e PlanetChange; o FastStartupProfileTest valida a versão do H2
+CREATE TABLE IF NOT EXISTS planets (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    name VARCHAR(255) NOT NULL,
+    climate VARCHAR(255) NOT NULL,
+    terrain VARCHAR(255) NOT NULL,
+    version BIGINT DEFAULT 0 NOT NULL,
+    updated_at DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_planets_name UNIQUE (name)
+);
+
+CREATE TABLE IF NOT EXISTS planet_tokens (
+    attribute VARCHAR(16) NOT NULL,
+    token VARCHAR(255) NOT NULL,
+    planet_id BIGINT NOT NULL,
+    PRIMARY KEY (attribute, token, planet_id),
+    INDEX idx_planet_tokens_planet (planet_id)
+);
+
+CREATE TABLE IF NOT EXISTS planet_changes (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    planet_id BIGINT NOT NULL,
+    name VARCHAR(255),
+    origin VARCHAR(36) NOT NULL,
+    changed_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    INDEX idx_planet_changes_changed_at (changed_at)
+);
@@ -0,0 +1,120 @@
+package io.mateusnere.swplanetapi;
+
+import io.mateusnere.swplanetapi.domain.Planet;
+import io.mateusnere.swplanetapi.domain.PlanetChangeLog;
+import io.mateusnere.swplanetapi.domain.PlanetJsonCache;
+import io.mateusnere.swplanetapi.domain.PlanetService;
+import io.mateusnere.swplanetapi.domain.PlanetView;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/*
+ * Duas instâncias da aplicação (dois contextos) sobre o mesmo H2 em memória, cada uma com os próprios caches.
+ * Uma escrita feita por uma delas precisa sumir do cache da outra pelo registro de alterações
+ * */
+public class ChangeLogInvalidationTest {
+
+    private static ConfigurableApplicationContext nodeA;
+
+    private static ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    public static void startNodes() {
+        nodeA = start();
+        nodeB = start();
+    }
+
+    @AfterAll
+    public static void stopNodes() {
+        nodeB.close();
+        nodeA.close();
+    }
+
+    @AfterEach
+    public void clearDatabase() {
+        JdbcTemplate jdbcTemplate = nodeA.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("DELETE FROM planet_tokens");
+        jdbcTemplate.update("DELETE FROM planets");
+    }
+
+    @Test
+    public void removePlanet_OnOtherNode_EvictsCachedPlanet() {
+        Planet created = service(nodeA).create(new Planet("Naboo", "temperate", "grassy hills, swamps"));
+        assertThat(service(nodeA).getById(created.getId())).isPresent();
+        assertThat(service(nodeA).getByName("Naboo")).isPresent();
+
+        service(nodeB).remove(created.getId());
+
+        // Sem a invalidação, o nó A serviria o planeta do cache até o ttl (10 minutos)
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+            assertThat(service(nodeA).getById(created.getId())).isEmpty();
+            assertThat(service(nodeA).getByName("Naboo")).isEmpty();
+        });
+    }
+
+    @Test
+    public void createPlanets_OnOtherNode_RefreshesCachedPage() {
+        service(nodeA).create(new Planet("Naboo", "temperate", "grassy hills, swamps"));
+        assertThat(page(nodeA)).extracting(PlanetView::name).containsExactly("Naboo");
+
+        service(nodeB).createAll(List.of(
+                new Planet("Alderaan", "temperate", "grasslands, mountains"),
+                new Planet("Yavin IV", "temperate, tropical", "jungle, rainforests")));
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThat(page(nodeA)).extracting(PlanetView::name).containsExactly("Naboo", "Alderaan", "Yavin IV"));
+    }
+
+    // Com páginas de 2 linhas, uma leitura só precisa aplicar as 5 remoções
+    @Test
+    public void removePlanets_MoreThanBatchSize_AppliedInOnePoll() {
+        List<Long> ids = service(nodeA).createAll(List.of(
+                        new Planet("Naboo", "temperate", "grassy hills, swamps"),
+                        new Planet("Alderaan", "temperate", "grasslands, mountains"),
+                        new Planet("Hoth", "frozen", "tundra, ice caves"),
+                        new Planet("Kamino", "temperate", "ocean"),
+                        new Planet("Mustafar", "hot", "volcanoes")))
+                .stream().map(result -> result.planet().getId()).toList();
+        ids.forEach(id -> assertThat(service(nodeA).getById(id)).isPresent());
+
+        ids.forEach(id -> service(nodeB).remove(id));
+        nodeA.getBean(PlanetChangeLog.class).poll();
+
+        ids.forEach(id -> assertThat(service(nodeA).getById(id)).isEmpty());
+    }
+
+    // Argumentos de linha de comando, que valem mais que um -Dspring.datasource.url do Maven
+    private static ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(SwPlanetApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:changes;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--planets.changes.poll-interval=100ms",
+                        "--planets.changes.batch-size=2",
+                        "--planets.tokens.backfill-on-startup=false",
+                        "--spring.main.banner-mode=off");
+    }
+
+    private static PlanetService service(ConfigurableApplicationContext node) {
+        return node.getBean(PlanetService.class);
+    }
+
+    private static List<PlanetView> page(ConfigurableApplicationContext node) {
+        return node.getBean(PlanetJsonCache.class)
+                .page("temperate", null, null, 10, () -> service(node).list("temperate", null, null, 10))
+                .planets();
+    }
+}
@@ -0,0 +1,44 @@
+package io.mateusnere.swplanetapi;
+
+import io.mateusnere.swplanetapi.domain.Planet;
+import io.mateusnere.swplanetapi.domain.PlanetFilter;
+import io.mateusnere.swplanetapi.domain.PlanetRepository;
+import io.mateusnere.swplanetapi.domain.PlanetService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * Sobe o perfil fast-startup sobre um H2 em memória. O schema vem de db/schema-h2.sql e o Hibernate só
+ * confere (ddl-auto=validate) se ele bate com as entidades
+ * */
+@ActiveProfiles("fast-startup")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:faststartup;DB_CLOSE_DELAY=-1",
+        "spring.sql.init.platform=h2",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.properties.hibernate.boot.allow_jdbc_metadata_access=true"
+})
+@Sql(scripts = {"/remove_planets.sql"}, executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+public class FastStartupProfileTest {
+
+    @Autowired
+    private PlanetService planetService;
+
+    @Autowired
+    private PlanetRepository planetRepository;
+
+    @Test
+    public void managedSchema_MatchesEntities() {
+        Planet created = planetService.create(new Planet("Naboo", "temperate", "grassy hills, swamps"));
+
+        assertThat(created.getId()).isNotNull();
+        assertThat(planetRepository.findViewById(created.getId())).isPresent();
+        assertThat(planetRepository.findPage(PlanetFilter.of("temperate", "swamps"), null, 10)).hasSize(1);
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -13,6 +14,7 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import static io.mateusnere.swplanetapi.common.PlanetConstants.*;
@@ -68,6 +70,20 @@ public class PlanetIT {
         assertThat(sut.getBody().getLast()).isEqualTo(YAVIN_IV);
     }
 
+    @Test
+    public void getPlanets_WithLimit_ReturnsPagesThroughCursor() {
+        ResponseEntity<Planet[]> firstPage = restTemplate.getForEntity("/planets?limit=2", Planet[].class);
+        String cursor = firstPage.getHeaders().getFirst("X-Next-Cursor");
+
+        ResponseEntity<Planet[]> secondPage = restTemplate.getForEntity("/planets?limit=2&after=" + cursor, Planet[].class);
+
+        assertThat(firstPage.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(firstPage.getBody()).containsExactly(TATOOINE, ALDERAAN);
+        assertThat(cursor).isNotNull();
+        assertThat(secondPage.getBody()).containsExactly(YAVIN_IV);
+        assertThat(secondPage.getHeaders().getFirst("X-Next-Cursor")).isNull();
+    }
+
     /*
     * Esse teste também poderia ser feito com a seguinte chamada:
     * restTemplate.getForEntity("/planets?climate=Arid", Planet[].class);
@@ -102,6 +118,14 @@ public class PlanetIT {
         assertThat(sut.getBody().getFirst()).isEqualTo(ALDERAAN);
     }
 
+    @Test
+    public void getPlanets_BySingleTerrainToken_ReturnsListOfPlanets() {
+        ResponseEntity<Planet[]> sut = restTemplate.getForEntity("/planets?terrain=mountains&climate=Temperate", Planet[].class);
+
+        assertThat(sut.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(sut.getBody()).containsExactly(ALDERAAN);
+    }
+
     @Test
     public void getPlanets_ByClimateAndTerrain_ReturnsListOfPlanets() {
         ResponseEntity<List<Planet>> sut = restTemplate.exchange(
@@ -130,4 +154,24 @@ public class PlanetIT {
         assertThat(sut.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
         assertThat(sut.getBody()).isNull();
     }
+
+    @Test
+    public void upsertPlanet_ByExistingName_ReturnsOkWithSameId() {
+        ResponseEntity<Planet> sut = restTemplate.exchange(
+                "/planets/name/Tatooine",
+                HttpMethod.PUT,
+                new HttpEntity<>(Map.of("climate", "temperate", "terrain", "grasslands")),
+                Planet.class
+        );
+
+        assertThat(sut.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(sut.getBody()).isEqualTo(new Planet(1L, "Tatooine", "temperate", "grasslands"));
+    }
+
+    @Test
+    public void deletePlanet_ByUnexistingId_ReturnsNotFound() {
+        ResponseEntity<String> sut = restTemplate.exchange("/planets/99", HttpMethod.DELETE, null, String.class);
+
+        assertThat(sut.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
 }
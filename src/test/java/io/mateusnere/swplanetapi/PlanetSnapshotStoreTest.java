@@ -0,0 +1,144 @@
+package io.mateusnere.swplanetapi;
+
+import io.mateusnere.swplanetapi.domain.Planet;
+import io.mateusnere.swplanetapi.domain.PlanetMetrics;
+import io.mateusnere.swplanetapi.domain.PlanetRepository;
+import io.mateusnere.swplanetapi.domain.PlanetService;
+import io.mateusnere.swplanetapi.domain.PlanetSnapshotStore;
+import io.mateusnere.swplanetapi.domain.PlanetView;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/*
+ * Duas instâncias com a foto em memória ligada sobre o mesmo H2. As escritas locais entram na foto depois do
+ * commit, e as da outra instância pelo registro de alterações
+ * */
+public class PlanetSnapshotStoreTest {
+
+    private static ConfigurableApplicationContext nodeA;
+
+    private static ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    public static void startNodes() {
+        nodeA = start();
+        nodeB = start();
+    }
+
+    @AfterAll
+    public static void stopNodes() {
+        nodeB.close();
+        nodeA.close();
+    }
+
+    @AfterEach
+    public void clearDatabase() {
+        JdbcTemplate jdbcTemplate = nodeA.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("DELETE FROM planet_tokens");
+        jdbcTemplate.update("DELETE FROM planets");
+        nodeA.getBean(PlanetSnapshotStore.class).load();
+        nodeB.getBean(PlanetSnapshotStore.class).load();
+    }
+
+    @Test
+    public void readPlanets_AfterLocalWrites_ServedFromSnapshot() {
+        Planet naboo = service(nodeA).create(new Planet("Naboo", "temperate", "grassy hills, swamps"));
+        service(nodeA).createAll(List.of(
+                new Planet("Alderaan", "temperate", "grasslands, mountains"),
+                new Planet("Hoth", "frozen", "tundra, ice caves")));
+        service(nodeA).remove(naboo.getId());
+
+        assertThat(store(nodeA).getById(naboo.getId())).isEmpty();
+        assertThat(service(nodeA).getByName("Alderaan")).map(PlanetView::climate).contains("temperate");
+        assertThat(service(nodeA).getByName("hoth")).map(PlanetView::name).contains("Hoth");
+        assertThat(service(nodeA).list("temperate", null, null, 10).planets())
+                .extracting(PlanetView::name).containsExactly("Alderaan");
+        assertThat(service(nodeA).count(null, null)).isEqualTo(2);
+    }
+
+    // Um PlanetService com um repositório vazio só acharia os planetas pela foto
+    @Test
+    public void readPlanets_WithSnapshotReady_DoNotQueryDatabase() {
+        service(nodeA).create(new Planet("Naboo", "temperate", "grassy hills, swamps"));
+        PlanetRepository repository = mock(PlanetRepository.class);
+        PlanetService service = new PlanetService(repository, null, null, null,
+                nodeA.getBean(PlanetMetrics.class), null, null, null, null,
+                nodeA.getBeanProvider(PlanetSnapshotStore.class));
+
+        assertThat(service.getByName("Naboo")).isPresent();
+        assertThat(service.list(null, "swamps", null, 10).planets()).hasSize(1);
+        assertThat(service.count("temperate", null)).isEqualTo(1);
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    public void writePlanets_OnOtherNode_RefreshSnapshot() {
+        Planet naboo = service(nodeB).create(new Planet("Naboo", "temperate", "grassy hills, swamps"));
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThat(service(nodeA).getById(naboo.getId())).map(PlanetView::name).contains("Naboo"));
+
+        service(nodeB).upsert(new Planet("Naboo", "arid", "desert"));
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThat(service(nodeA).getByName("Naboo")).map(PlanetView::climate).contains("arid"));
+
+        service(nodeB).remove(naboo.getId());
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThat(service(nodeA).count(null, null)).isZero());
+    }
+
+    // A remoção local chega entre o SELECT da releitura e o publish: o planeta lido antes não volta para a foto
+    @Test
+    public void refreshPlanet_RemovedWhileReading_StaysRemoved() {
+        PlanetRepository repository = mock(PlanetRepository.class);
+        PlanetSnapshotStore store = new PlanetSnapshotStore(repository, new SimpleMeterRegistry(), 1024, 100);
+        PlanetView naboo = new PlanetView(1L, "Naboo", "temperate", "grassy hills, swamps", 0L, null);
+        when(repository.findViewsByIdIn(List.of(1L))).thenAnswer(invocation -> {
+            store.remove(1L);
+            return List.of(naboo);
+        });
+
+        store.refresh(List.of(1L));
+
+        assertThat(store.getById(1L)).isEmpty();
+    }
+
+    private static ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(SwPlanetApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:snapshot;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--planets.snapshot.enabled=true",
+                        "--planets.snapshot.max-delta=2",
+                        "--planets.changes.poll-interval=100ms",
+                        "--planets.tokens.backfill-on-startup=false",
+                        "--spring.main.banner-mode=off");
+    }
+
+    private static PlanetService service(ConfigurableApplicationContext node) {
+        return node.getBean(PlanetService.class);
+    }
+
+    private static PlanetSnapshotStore store(ConfigurableApplicationContext node) {
+        return node.getBean(PlanetSnapshotStore.class);
+    }
+}
@@ -0,0 +1,78 @@
+package io.mateusnere.swplanetapi;
+
+import io.mateusnere.swplanetapi.domain.Planet;
+import io.mateusnere.swplanetapi.domain.PlanetService;
+import io.mateusnere.swplanetapi.domain.PlanetView;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.context.jdbc.Sql;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * Dois H2 em memória no papel de primário e de réplica. A réplica não recebe as escritas, então um planeta
+ * só aparece nela quando o teste o insere direto, e um planeta criado pela aplicação só existe no primário
+ * */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1",
+        "planets.replicas.urls=" + ReplicaRoutingTest.REPLICA_URL,
+        "planets.replicas.username=sa",
+        "planets.replicas.password=",
+        "planets.replicas.sticky-after-write=3s"
+})
+@Sql(scripts = {"/remove_planets.sql"}, executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+public class ReplicaRoutingTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:db/schema-h2.sql'";
+
+    @Autowired
+    private PlanetService planetService;
+
+    @Autowired
+    private JdbcTemplate primary;
+
+    private final JdbcTemplate replica = new JdbcTemplate(new SingleConnectionDataSource(REPLICA_URL, "sa", "", true));
+
+    @AfterEach
+    public void clearReplica() {
+        replica.update("DELETE FROM planet_tokens");
+        replica.update("DELETE FROM planets");
+    }
+
+    @Test
+    public void getPlanet_WithoutRecentWrites_ReadsFromReplica() {
+        replica.update("INSERT INTO planets (id, name, climate, terrain) VALUES (100, 'Kamino', 'temperate', 'ocean')");
+
+        assertThat(planetService.getByName("Kamino")).map(PlanetView::id).hasValue(100L);
+        assertThat(planetService.getById(100L)).isPresent();
+    }
+
+    @Test
+    public void createPlanet_ThenRead_ReadsOwnWriteFromPrimaryUntilWindowEnds() throws InterruptedException {
+        Planet created = planetService.create(new Planet("Naboo", "temperate", "grassy hills, swamps"));
+
+        assertThat(planetService.getByName("Naboo")).isPresent();
+        assertThat(planetService.list("temperate", "swamps", null, 10).planets())
+                .extracting(PlanetView::name).containsExactly("Naboo");
+
+        // Passada a janela, as leituras voltam para a réplica, que nunca recebeu o planeta
+        Thread.sleep(3500);
+        assertThat(planetService.getById(created.getId())).isEmpty();
+        assertThat(planetService.count("temperate", null)).isZero();
+    }
+
+    // O planeta não estava nos caches, então a remoção não sabe o nome: as buscas por nome vão ao primário
+    @Test
+    public void removeUncachedPlanet_ThenGetByName_ReadsFromPrimary() {
+        primary.update("INSERT INTO planets (id, name, climate, terrain) VALUES (200, 'Mustafar', 'hot', 'volcanoes')");
+        replica.update("INSERT INTO planets (id, name, climate, terrain) VALUES (200, 'Mustafar', 'hot', 'volcanoes')");
+
+        planetService.remove(200L);
+
+        assertThat(planetService.getByName("Mustafar")).isEmpty();
+    }
+}
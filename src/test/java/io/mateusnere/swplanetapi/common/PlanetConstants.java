@@ -1,10 +1,12 @@
 package io.mateusnere.swplanetapi.common;
 
 import io.mateusnere.swplanetapi.domain.Planet;
+import io.mateusnere.swplanetapi.domain.PlanetView;
 
 public class PlanetConstants {
 
     public static final Planet PLANET = new Planet("Tatooine-1", "Dry", "Desert");
+    public static final PlanetView PLANET_VIEW = PlanetView.of(PLANET);
     public static final Planet INVALID_PLANET = new Planet("", "", "");
     public static final Planet TATOOINE = new Planet(1L, "Tatooine", "Arid", "Desert");
     public static final Planet ALDERAAN = new Planet(2L, "Alderaan", "temperate", "grasslands, mountains");
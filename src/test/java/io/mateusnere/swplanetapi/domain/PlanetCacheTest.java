@@ -0,0 +1,169 @@
+package io.mateusnere.swplanetapi.domain;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static io.mateusnere.swplanetapi.common.PlanetConstants.TATOOINE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+public class PlanetCacheTest {
+
+    private static final PlanetView TATOOINE_VIEW = PlanetView.of(TATOOINE);
+
+    private final PlanetCache planetCache = new PlanetCache(100, Duration.ofMinutes(1));
+
+    @Test
+    public void getPlanet_ById_LoadsOnlyOnFirstCall() {
+        AtomicInteger loads = new AtomicInteger();
+
+        planetCache.getById(1L, id -> {
+            loads.incrementAndGet();
+            return Optional.of(TATOOINE_VIEW);
+        });
+        Optional<PlanetView> sut = planetCache.getById(1L, id -> {
+            loads.incrementAndGet();
+            return Optional.of(TATOOINE_VIEW);
+        });
+
+        assertThat(sut).contains(TATOOINE_VIEW);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    public void getPlanet_ByUnexistingName_IsNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+
+        planetCache.getByName("Marte", name -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+        Optional<PlanetView> sut = planetCache.getByName("Marte", name -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+
+        assertThat(sut).isEmpty();
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    public void getPlanet_WhenLoaderFails_PropagatesErrorAndDoesNotCacheIt() {
+        assertThatThrownBy(() -> planetCache.getById(1L, id -> {
+            throw new IllegalStateException("banco fora do ar");
+        })).isInstanceOf(IllegalStateException.class);
+
+        Optional<PlanetView> sut = planetCache.getById(1L, id -> Optional.of(TATOOINE_VIEW));
+
+        assertThat(sut).contains(TATOOINE_VIEW);
+    }
+
+    @Test
+    public void getPlanet_WhenLoaderThrowsError_DoesNotBlockNextLoad() {
+        assertThatThrownBy(() -> planetCache.getById(1L, id -> {
+            throw new StackOverflowError();
+        })).isInstanceOf(StackOverflowError.class);
+
+        Optional<PlanetView> sut = planetCache.getById(1L, id -> Optional.of(TATOOINE_VIEW));
+
+        assertThat(sut).contains(TATOOINE_VIEW);
+    }
+
+    @Test
+    public void getPlanet_ConcurrentMissesByName_ShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Optional<PlanetView>> first = CompletableFuture.supplyAsync(() -> planetCache.getByName("Marte", name -> {
+            loads.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                throw new IllegalStateException(ex);
+            }
+            return Optional.empty();
+        }));
+        started.await();
+        CompletableFuture<Optional<PlanetView>> second = new CompletableFuture<>();
+        Thread waiter = Thread.ofPlatform().start(() -> second.complete(planetCache.getByName("Marte", name -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        })));
+        await().atMost(Duration.ofSeconds(5)).until(() -> waiter.getState() == Thread.State.WAITING);
+        release.countDown();
+
+        // Mesmo sem resultado (que não fica no cache), as buscas simultâneas dividem a mesma consulta
+        assertThat(first.get()).isEmpty();
+        assertThat(second.get()).isEmpty();
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    public void getPlanet_LoadsOnCallingThread() {
+        Thread caller = Thread.currentThread();
+        AtomicReference<Thread> loader = new AtomicReference<>();
+
+        planetCache.getByName("Tatooine", name -> {
+            loader.set(Thread.currentThread());
+            return Optional.of(TATOOINE_VIEW);
+        });
+
+        assertThat(loader).hasValue(caller);
+    }
+
+    @Test
+    public void evictPlanet_RemovesByIdAndByName() {
+        planetCache.getById(1L, id -> Optional.of(TATOOINE_VIEW));
+        planetCache.getByName("Tatooine", name -> Optional.of(TATOOINE_VIEW));
+
+        planetCache.evict(TATOOINE);
+
+        assertThat(planetCache.getById(1L, id -> Optional.empty())).isEmpty();
+        assertThat(planetCache.getByName("Tatooine", name -> Optional.empty())).isEmpty();
+    }
+
+    @Test
+    public void getPlanet_ByNameInOtherCase_SharesEntryAndEviction() {
+        planetCache.getByName("Tatooine", name -> Optional.of(TATOOINE_VIEW));
+
+        assertThat(planetCache.getByName("TATOOINE", name -> Optional.empty())).contains(TATOOINE_VIEW);
+
+        planetCache.evict(new Planet(1L, "tatooine", null, null));
+
+        assertThat(planetCache.peekByName("Tatooine")).isEmpty();
+    }
+
+    // Remoção só pelo id, com o planeta carregado apenas pelo nome
+    @Test
+    public void evictPlanet_ByIdOnly_RemovesPlanetLoadedByName() {
+        planetCache.getByName("Tatooine", name -> Optional.of(TATOOINE_VIEW));
+
+        assertThat(planetCache.nameOf(1L)).hasValue("tatooine");
+        planetCache.evict(new Planet(1L, null, null, null));
+
+        assertThat(planetCache.nameOf(1L)).isEmpty();
+        assertThat(planetCache.getByName("Tatooine", name -> Optional.empty())).isEmpty();
+    }
+
+    @Test
+    public void bindTo_PublishesHitAndMissCounters() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        planetCache.bindTo(registry);
+
+        planetCache.getById(1L, id -> Optional.of(TATOOINE_VIEW));
+        planetCache.getById(1L, id -> Optional.of(TATOOINE_VIEW));
+
+        assertThat(registry.get("cache.gets").tag("cache", "planetsById").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("cache.gets").tag("cache", "planetsById").tag("result", "miss").functionCounter().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,20 @@
+package io.mateusnere.swplanetapi.domain;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PlanetFilterTest {
+
+    @Test
+    public void tokenize_SplitsAndNormalizesValues() {
+        assertThat(PlanetFilter.tokenize(" Grasslands,  MOUNTAINS ,,ice   caves"))
+                .containsExactly("grasslands", "ice caves", "mountains");
+    }
+
+    @Test
+    public void tokenize_WithNullValue_ReturnsEmptySet() {
+        assertThat(PlanetFilter.tokenize(null)).isEmpty();
+        assertThat(PlanetFilter.of(null, null).isEmpty()).isTrue();
+    }
+}
@@ -0,0 +1,122 @@
+package io.mateusnere.swplanetapi.domain;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PlanetGroupCommitTest {
+
+    private final PlanetService planetService = mock(PlanetService.class);
+
+    private PlanetGroupCommit groupCommit;
+
+    @AfterEach
+    public void stop() {
+        groupCommit.stop();
+    }
+
+    @Test
+    public void createPlanets_InSameBatch_ReturnEachOwnResult() throws Exception {
+        groupCommit = start(2, Duration.ofSeconds(5), 10);
+        Planet tatooine = new Planet("Tatooine", "arid", "desert");
+        Planet alderaan = new Planet("Alderaan", "temperate", "grasslands, mountains");
+        when(planetService.createAll(anyList())).thenAnswer(invocation -> {
+            List<Planet> planets = invocation.getArgument(0);
+            planets.getFirst().setId(1L);
+            return List.of(PlanetBatchResult.created(0, planets.getFirst()), PlanetBatchResult.conflict(1, planets.get(1)));
+        });
+
+        CompletableFuture<Planet> first = CompletableFuture.supplyAsync(() -> groupCommit.create(tatooine));
+        await().atMost(Duration.ofSeconds(5)).until(() -> groupCommit.queued() == 1);
+        CompletableFuture<Planet> second = CompletableFuture.supplyAsync(() -> groupCommit.create(alderaan));
+
+        // O lote enche com o segundo planeta e sai sem esperar o max-delay
+        assertThat(first.get().getId()).isEqualTo(1L);
+        assertThatThrownBy(second::get).isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    public void createPlanet_WithFullQueue_ThrowsWriteQueueFullException() throws Exception {
+        groupCommit = start(1, Duration.ofMillis(1), 1);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(planetService.createAll(anyList())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            List<Planet> planets = invocation.getArgument(0);
+            return List.of(PlanetBatchResult.created(0, planets.getFirst()));
+        });
+
+        // O primeiro está sendo gravado e o segundo ocupa a única vaga da fila
+        CompletableFuture<Planet> writingNow = CompletableFuture.supplyAsync(() -> groupCommit.create(new Planet("Tatooine", "arid", "desert")));
+        writing.await();
+        CompletableFuture<Planet> queued = CompletableFuture.supplyAsync(() -> groupCommit.create(new Planet("Hoth", "frozen", "tundra")));
+        await().atMost(Duration.ofSeconds(5)).until(() -> groupCommit.queued() == 1);
+
+        assertThatThrownBy(() -> groupCommit.create(new Planet("Naboo", "temperate", "grassy hills")))
+                .isInstanceOf(WriteQueueFullException.class);
+
+        release.countDown();
+        assertThat(writingNow.get().getName()).isEqualTo("Tatooine");
+        assertThat(queued.get().getName()).isEqualTo("Hoth");
+    }
+
+    // Um Error no lote falha as criações dele, e a thread de gravação continua atendendo as próximas
+    @Test
+    public void createPlanet_AfterErrorInBatch_IsStillWritten() {
+        groupCommit = start(1, Duration.ofMillis(1), 10);
+        when(planetService.createAll(anyList()))
+                .thenThrow(new StackOverflowError())
+                .thenAnswer(invocation -> {
+                    List<Planet> planets = invocation.getArgument(0);
+                    return List.of(PlanetBatchResult.created(0, planets.getFirst()));
+                });
+
+        assertThatThrownBy(() -> groupCommit.create(new Planet("Tatooine", "arid", "desert")))
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(StackOverflowError.class);
+        assertThat(groupCommit.create(new Planet("Hoth", "frozen", "tundra")).getName()).isEqualTo("Hoth");
+    }
+
+    @Test
+    public void createPlanet_WithoutAnswerInTime_ThrowsWriteQueueFullException() throws Exception {
+        groupCommit = start(1, Duration.ofMillis(1), 10, Duration.ofMillis(100));
+        CountDownLatch release = new CountDownLatch(1);
+        when(planetService.createAll(anyList())).thenAnswer(invocation -> {
+            release.await();
+            List<Planet> planets = invocation.getArgument(0);
+            return List.of(PlanetBatchResult.created(0, planets.getFirst()));
+        });
+
+        assertThatThrownBy(() -> groupCommit.create(new Planet("Tatooine", "arid", "desert")))
+                .isInstanceOf(WriteQueueFullException.class);
+
+        release.countDown();
+    }
+
+    private PlanetGroupCommit start(int maxBatch, Duration maxDelay, int capacity) {
+        return start(maxBatch, maxDelay, capacity, Duration.ofSeconds(10));
+    }
+
+    private PlanetGroupCommit start(int maxBatch, Duration maxDelay, int capacity, Duration timeout) {
+        PlanetGroupCommit started = new PlanetGroupCommit(planetService, new SimpleMeterRegistry(), maxBatch, maxDelay, capacity, timeout);
+        started.start();
+        return started;
+    }
+}
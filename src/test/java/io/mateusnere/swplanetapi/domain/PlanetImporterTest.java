@@ -0,0 +1,111 @@
+package io.mateusnere.swplanetapi.domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/*
+ * Importa arquivos temporários num H2 em memória, com lotes pequenos para vários lotes rodarem em paralelo
+ * */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:importer;DB_CLOSE_DELAY=-1",
+        "planets.import.batch-size=2",
+        "planets.import.threads=3"
+})
+@Sql(scripts = {"/remove_planets.sql"}, executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+public class PlanetImporterTest {
+
+    @Autowired
+    private PlanetImporter importer;
+
+    @Autowired
+    private PlanetRepository planetRepository;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void importJson_WithInvalidAndRepeatedRows_CreatesValidPlanets() throws Exception {
+        Path file = Files.writeString(directory.resolve("planets.json"), """
+                [
+                  {"name": "Tatooine", "climate": "arid", "terrain": "desert", "rotation_period": "23"},
+                  {"name": "Alderaan", "climate": "temperate", "terrain": "grasslands, mountains"},
+                  {"name": "", "climate": "frozen", "terrain": "tundra"},
+                  {"name": "Tatooine", "climate": "arid", "terrain": "desert"},
+                  {"name": "Yavin IV", "climate": "temperate, tropical", "terrain": "jungle, rainforest"}
+                ]
+                """);
+
+        PlanetImporter.Result sut = importer.importFile(file);
+
+        assertThat(sut.rows()).isEqualTo(5);
+        assertThat(sut.created()).isEqualTo(3);
+        assertThat(sut.invalid()).isEqualTo(1);
+        assertThat(sut.conflicts()).isEqualTo(1);
+        assertThat(sut.rowsPerSecond()).isPositive();
+        assertThat(planetRepository.findAll()).extracting(Planet::getName)
+                .containsExactlyInAnyOrder("Tatooine", "Alderaan", "Yavin IV");
+        assertThat(planetRepository.findPage(PlanetFilter.of("temperate", null), null, 10)).hasSize(2);
+        assertThat(directory.resolve("planets.json.checkpoint")).doesNotExist();
+    }
+
+    @Test
+    public void importCsv_WithQuotedValuesAndExtraColumns_CreatesPlanets() throws Exception {
+        String rows = IntStream.rangeClosed(1, 25)
+                .mapToObj(i -> "Planet " + i + ",10465,\"arid, temperate\",desert")
+                .collect(Collectors.joining("\n"));
+        Path file = Files.writeString(directory.resolve("planets.csv"), "name,diameter,climate,terrain\n" + rows + "\n");
+
+        PlanetImporter.Result sut = importer.importFile(file);
+
+        assertThat(sut.rows()).isEqualTo(25);
+        assertThat(sut.created()).isEqualTo(25);
+        assertThat(planetRepository.findByName("Planet 25")).hasValueSatisfying(planet ->
+                assertThat(planet.getClimate()).isEqualTo("arid, temperate"));
+    }
+
+    @Test
+    public void importFile_WithCheckpoint_ResumesAfterCommittedRows() throws Exception {
+        Path file = Files.writeString(directory.resolve("planets.csv"), """
+                name,climate,terrain
+                Tatooine,arid,desert
+                Alderaan,temperate,"grasslands, mountains"
+                Hoth,frozen,tundra
+                """);
+        Path checkpoint = Files.writeString(directory.resolve("import.checkpoint"), "2");
+
+        PlanetImporter.Result sut = importer.importFile(file, checkpoint);
+
+        assertThat(sut.resumedFrom()).isEqualTo(2);
+        assertThat(sut.rows()).isEqualTo(3);
+        assertThat(sut.created()).isEqualTo(1);
+        assertThat(planetRepository.findAll()).extracting(Planet::getName).containsExactly("Hoth");
+        assertThat(checkpoint).doesNotExist();
+    }
+
+    @Test
+    public void importFile_WithMalformedJson_KeepsCheckpointOfCommittedRows() throws Exception {
+        String valid = IntStream.rangeClosed(1, 4)
+                .mapToObj(i -> "{\"name\": \"Planet " + i + "\", \"climate\": \"arid\", \"terrain\": \"desert\"}")
+                .collect(Collectors.joining(",\n"));
+        Path file = Files.writeString(directory.resolve("planets.json"), "[\n" + valid + ",\n{\"name\": ");
+        Path checkpoint = directory.resolve("planets.json.checkpoint");
+
+        // O arquivo termina no meio de um planeta, depois de dois lotes completos
+        assertThatThrownBy(() -> importer.importFile(file)).isInstanceOf(IOException.class);
+
+        assertThat(Files.readString(checkpoint)).isEqualTo("4");
+        assertThat(planetRepository.findAll()).hasSize(4);
+    }
+}
@@ -0,0 +1,94 @@
+package io.mateusnere.swplanetapi.domain;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.mateusnere.swplanetapi.common.PlanetConstants.ALDERAAN;
+import static io.mateusnere.swplanetapi.common.PlanetConstants.TATOOINE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PlanetJsonCacheTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private final PlanetCollectionVersion collectionVersion = new PlanetCollectionVersion();
+
+    private final PlanetJsonCache jsonCache = new PlanetJsonCache(objectMapper, collectionVersion,
+            DataSize.ofMegabytes(1), DataSize.ofMegabytes(1));
+
+    @Test
+    public void planet_ReturnsSameJsonAsPlanetEntity() throws Exception {
+        byte[] sut = jsonCache.planet(PlanetView.of(TATOOINE));
+
+        assertThat(new String(sut)).isEqualTo(objectMapper.writeValueAsString(TATOOINE));
+    }
+
+    @Test
+    public void planet_WithSameVersion_SerializesOnlyOnce() {
+        PlanetView planet = new PlanetView(1L, "Tatooine", "arid", "desert", 0L, null);
+
+        byte[] first = jsonCache.planet(planet);
+        byte[] second = jsonCache.planet(planet);
+        byte[] changed = jsonCache.planet(new PlanetView(1L, "Tatooine", "arid, hot", "desert", 1L, null));
+
+        assertThat(second).isSameAs(first);
+        assertThat(new String(changed)).contains("arid, hot");
+    }
+
+    @Test
+    public void page_WithEquivalentFilters_LoadsOnce() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        PlanetPage page = new PlanetPage(List.of(PlanetView.of(ALDERAAN)), 2L);
+
+        jsonCache.page("Temperate", null, null, 10, () -> {
+            loads.incrementAndGet();
+            return page;
+        });
+        PlanetJsonCache.EncodedPage sut = jsonCache.page(" temperate", null, null, 10, () -> {
+            loads.incrementAndGet();
+            return page;
+        });
+
+        assertThat(loads).hasValue(1);
+        assertThat(sut.next()).isEqualTo(2L);
+        assertThat(new String(sut.json())).isEqualTo(objectMapper.writeValueAsString(List.of(ALDERAAN)));
+    }
+
+    @Test
+    public void page_AfterWriteOrEviction_LoadsAgain() {
+        AtomicInteger loads = new AtomicInteger();
+        PlanetPage page = new PlanetPage(List.of(), null);
+
+        jsonCache.page(null, null, null, 10, () -> {
+            loads.incrementAndGet();
+            return page;
+        });
+        collectionVersion.increment();
+        jsonCache.page(null, null, null, 10, () -> {
+            loads.incrementAndGet();
+            return page;
+        });
+        jsonCache.evictPages();
+        jsonCache.page(null, null, null, 10, () -> {
+            loads.incrementAndGet();
+            return page;
+        });
+
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    public void evictPlanet_SerializesAgain() {
+        PlanetView planet = PlanetView.of(TATOOINE);
+        byte[] first = jsonCache.planet(planet);
+
+        jsonCache.evict(TATOOINE);
+
+        assertThat(jsonCache.planet(planet)).isNotSameAs(first).isEqualTo(first);
+    }
+}
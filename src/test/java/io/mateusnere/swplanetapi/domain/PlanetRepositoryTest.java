@@ -1,5 +1,6 @@
 package io.mateusnere.swplanetapi.domain;
 
+import org.hibernate.Session;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -8,11 +9,14 @@ import org.junit.jupiter.params.provider.MethodSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
-import org.springframework.data.domain.Example;
 import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Stream;
 
 import static io.mateusnere.swplanetapi.common.PlanetConstants.PLANET;
@@ -31,6 +35,8 @@ public class PlanetRepositoryTest {
     @AfterEach
     public void clearId() {
         PLANET.setId(null);
+        PLANET.setVersion(null);
+        PLANET.setUpdatedAt(null);
     }
 
     @Test
@@ -41,6 +47,37 @@ public class PlanetRepositoryTest {
         assertThat(sut.getName()).isEqualTo(PLANET.getName());
         assertThat(sut.getClimate()).isEqualTo(PLANET.getClimate());
         assertThat(sut.getTerrain()).isEqualTo(PLANET.getTerrain());
+        assertThat(sut.getVersion()).isZero();
+        assertThat(sut.getUpdatedAt()).isNotNull();
+    }
+
+    @Test
+    public void createPlanets_InBatch_ReturnsPlanetsWithIds() {
+        List<Planet> planets = List.of(
+                new Planet("Naboo", "temperate", "grassy hills"),
+                new Planet("Hoth", "frozen", "tundra"));
+
+        List<Planet> sut = planetRepository.insertAll(planets);
+
+        assertThat(sut).extracting(Planet::getId).doesNotContainNull().doesNotHaveDuplicates();
+        assertThat(testEntityManager.find(Planet.class, sut.getLast().getId()).getName()).isEqualTo("Hoth");
+        assertThat(planetRepository.findPage(PlanetFilter.of(null, "tundra"), null, 10)).extracting(PlanetView::name).containsExactly("Hoth");
+    }
+
+    @Sql(scripts = "/import_planets.sql")
+    @Test
+    public void getExistingNames_ReturnsOnlyNamesInDatabase() {
+        Set<String> sut = planetRepository.findExistingNames(List.of("Tatooine", "Naboo", "Alderaan"));
+        assertThat(sut).containsExactlyInAnyOrder("Tatooine", "Alderaan");
+    }
+
+    @Sql(scripts = "/import_planets.sql")
+    @Test
+    public void getPlanetViews_ByIdsAndNames_ReturnsOnlyExistingPlanets() {
+        assertThat(planetRepository.findViewsByIdIn(List.of(1L, 3L, 99L))).extracting(PlanetView::name)
+                .containsExactlyInAnyOrder("Tatooine", "Yavin IV");
+        assertThat(planetRepository.findViewsByNameIn(List.of("Alderaan", "Marte"))).extracting(PlanetView::id)
+                .containsExactly(2L);
     }
 
     private static Stream<Arguments> providesInvalidPlanets() {
@@ -108,46 +145,167 @@ public class PlanetRepositoryTest {
         assertThat(sut).isEmpty();
     }
 
+    @Test
+    public void getPlanetView_ByExistingIdAndName_ReturnsProjectionWithoutManagingEntity() {
+        Planet planet = testEntityManager.persistFlushFind(PLANET);
+        testEntityManager.clear();
+
+        Optional<PlanetView> sutById = planetRepository.findViewById(planet.getId());
+        Optional<PlanetView> sutByName = planetRepository.findViewByName(planet.getName());
+
+        assertThat(sutById).contains(PlanetView.of(planet));
+        assertThat(sutByName).contains(PlanetView.of(planet));
+        assertThat(testEntityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+        assertThat(planetRepository.findViewById(planet.getId() + 1)).isEmpty();
+    }
+
     @Sql(scripts = "/import_planets.sql")
     @Test
     public void getPlanets_ReturnsListOfPlanets() {
 
-        Example<Planet> query = QueryBuilder.makeQuery(new Planet(null, null));
-        Example<Planet> queryAlderaan = QueryBuilder.makeQuery(new Planet("temperate", null));
-        Example<Planet> queryTatooine = QueryBuilder.makeQuery(new Planet(null, "desert"));
-        List<Planet> sut = (List<Planet>) planetRepository.findAll(query);
-        List<Planet> sutAlderaan = (List<Planet>) planetRepository.findAll(queryAlderaan);
-        List<Planet> sutTatooine = (List<Planet>) planetRepository.findAll(queryTatooine);
+        List<PlanetView> sut = planetRepository.findPage(PlanetFilter.of(null, null), null, 10);
+        List<PlanetView> sutTemperate = planetRepository.findPage(PlanetFilter.of("temperate", null), null, 10);
+        List<PlanetView> sutTatooine = planetRepository.findPage(PlanetFilter.of(null, "desert"), null, 10);
 
         assertThat(sut).isNotEmpty();
         assertThat(sut).hasSize(3);
-        assertThat(sutAlderaan).isNotEmpty();
-        assertThat(sutAlderaan).hasSize(1);
-        assertThat(sutAlderaan.getFirst().getName()).isEqualTo("Alderaan");
+        // Pelo índice de termos, "temperate" também encontra o "temperate, tropical" de Yavin IV
+        assertThat(sutTemperate).isNotEmpty();
+        assertThat(sutTemperate).extracting(PlanetView::name).containsExactly("Alderaan", "Yavin IV");
         assertThat(sutTatooine).isNotEmpty();
         assertThat(sutTatooine).hasSize(1);
-        assertThat(sutTatooine.getFirst().getName()).isEqualTo("Tatooine");
+        assertThat(sutTatooine.getFirst().name()).isEqualTo("Tatooine");
     }
 
     @Test
     public void getPlanets_ByUnexistingFilter_ReturnsEmptyList() {
-        Example<Planet> query = QueryBuilder.makeQuery(new Planet("climate", "terrain"));
-        List<Planet> sut = (List<Planet>) planetRepository.findAll(query);
+        List<PlanetView> sut = planetRepository.findPage(PlanetFilter.of("climate", "terrain"), null, 10);
 
         assertThat(sut).isEmpty();
     }
 
     @Sql(scripts = "/import_planets.sql")
     @Test
-    public void deletePlanet_ByExistingId_RemovePlanetFromDatabase() {
-        Example<Planet> query = QueryBuilder.makeQuery(new Planet("arid", "desert"));
-        Example<Planet> queryRetunAll = QueryBuilder.makeQuery(new Planet());
+    public void getPlanets_Page_ReturnsPlanetsAfterCursorOrderedById() {
+        PlanetFilter filter = PlanetFilter.of(null, null);
+        PlanetFilter filterTemperate = PlanetFilter.of("temperate", null);
+
+        List<PlanetView> firstPage = planetRepository.findPage(filter, null, 2);
+        List<PlanetView> secondPage = planetRepository.findPage(filter, firstPage.getLast().id(), 2);
+        List<PlanetView> sutTemperate = planetRepository.findPage(filterTemperate, 2L, 10);
+
+        assertThat(firstPage).extracting(PlanetView::name).containsExactly("Tatooine", "Alderaan");
+        assertThat(secondPage).extracting(PlanetView::name).containsExactly("Yavin IV");
+        assertThat(sutTemperate).extracting(PlanetView::name).containsExactly("Yavin IV");
+    }
+
+    @Sql(scripts = "/import_planets.sql")
+    @Test
+    public void getPlanets_ByTokens_ReturnsPlanetsWithAllTokens() {
+        List<PlanetView> sutMountains = planetRepository.findPage(PlanetFilter.of(null, "Mountains"), null, 10);
+        List<PlanetView> sutTemperate = planetRepository.findPage(PlanetFilter.of("temperate", null), null, 10);
+        List<PlanetView> sutBoth = planetRepository.findPage(PlanetFilter.of("tropical, temperate", "jungle"), null, 10);
+        List<PlanetView> sutNone = planetRepository.findPage(PlanetFilter.of("arid", "mountains"), null, 10);
+
+        assertThat(sutMountains).extracting(PlanetView::name).containsExactly("Alderaan");
+        assertThat(sutTemperate).extracting(PlanetView::name).containsExactly("Alderaan", "Yavin IV");
+        assertThat(sutBoth).extracting(PlanetView::name).containsExactly("Yavin IV");
+        assertThat(sutNone).isEmpty();
+        assertThat(planetRepository.count(PlanetFilter.of("temperate", null))).isEqualTo(2);
+    }
+
+    @Test
+    public void indexTokens_MakesPlanetSearchableByEachToken() {
+        Planet planet = planetRepository.save(new Planet("Naboo", "temperate", "grassy hills, swamps"));
+        planetRepository.indexTokens(planet);
+
+        assertThat(planetRepository.findPage(PlanetFilter.of(null, "swamps"), null, 10))
+                .extracting(PlanetView::id).containsExactly(planet.getId());
 
+        planetRepository.removeTokens(planet.getId());
+        assertThat(planetRepository.findPage(PlanetFilter.of(null, "swamps"), null, 10)).isEmpty();
+    }
+
+    // A lista de postagens é a própria chave primária gerada pelo Hibernate, sem outro índice igual
+    @Test
+    public void planetTokensPrimaryKey_IsOrderedByAttributeTokenAndPlanet() {
+        List<Object> columns = testEntityManager.getEntityManager().createNativeQuery(
+                "SELECT c.COLUMN_NAME FROM INFORMATION_SCHEMA.INDEX_COLUMNS c JOIN INFORMATION_SCHEMA.INDEXES i"
+                        + " ON i.INDEX_NAME = c.INDEX_NAME AND i.TABLE_NAME = c.TABLE_NAME"
+                        + " WHERE c.TABLE_NAME = 'PLANET_TOKENS' AND i.INDEX_TYPE_NAME = 'PRIMARY KEY'"
+                        + " ORDER BY c.ORDINAL_POSITION", Object.class).getResultList();
+
+        assertThat(columns).containsExactly("ATTRIBUTE", "TOKEN", "PLANET_ID");
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void indexTokens_WithoutTransaction_ThrowsException() {
+        assertThatThrownBy(() -> planetRepository.indexTokens(new Planet(1L, "Naboo", "temperate", "swamps")))
+                .isInstanceOf(IllegalTransactionStateException.class);
+        assertThatThrownBy(() -> planetRepository.removeTokens(1L))
+                .isInstanceOf(IllegalTransactionStateException.class);
+    }
+
+    @Test
+    public void indexMissingTokens_IndexesOnlyPlanetsWithoutTokens() {
+        Planet indexed = planetRepository.save(new Planet("Naboo", "temperate", "swamps"));
+        planetRepository.indexTokens(indexed);
+        planetRepository.save(new Planet("Hoth", "frozen", "tundra, ice caves"));
+
+        int sut = planetRepository.indexMissingTokens();
+
+        assertThat(sut).isEqualTo(1);
+        assertThat(planetRepository.findPage(PlanetFilter.of(null, "ice caves"), null, 10))
+                .extracting(PlanetView::name).containsExactly("Hoth");
+    }
+
+    @Sql(scripts = "/import_planets.sql")
+    @Test
+    public void streamPlanets_ReturnsProjectionsOutsidePersistenceContext() {
+        List<PlanetView> sut;
+        try (Stream<PlanetView> planets = planetRepository.streamAll(PlanetFilter.of("temperate", null))) {
+            sut = planets.toList();
+        }
+
+        assertThat(sut).extracting(PlanetView::name).containsExactly("Alderaan", "Yavin IV");
+        assertThat(testEntityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    }
+
+    @Sql(scripts = "/import_planets.sql")
+    @Test
+    public void deletePlanet_ByExistingId_RemovePlanetFromDatabase() {
         planetRepository.deleteById(1L);
-        List<Planet> sut = (List<Planet>) planetRepository.findAll(query);
-        List<Planet> sutAll = (List<Planet>) planetRepository.findAll(queryRetunAll);
+        List<PlanetView> sut = planetRepository.findPage(PlanetFilter.of("arid", "desert"), null, 10);
+        List<PlanetView> sutAll = planetRepository.findPage(PlanetFilter.of(null, null), null, 10);
 
         assertThat(sut).isEmpty();
         assertThat(sutAll).hasSize(2);
     }
+
+    @Sql(scripts = "/import_planets.sql")
+    @Test
+    public void deletePlanet_ByIdReturningCount_ReturnsDeletedRows() {
+        assertThat(planetRepository.deleteByIdReturningCount(1L)).isEqualTo(1);
+        assertThat(planetRepository.deleteByIdReturningCount(1L)).isZero();
+        assertThat(planetRepository.findViewById(1L)).isEmpty();
+    }
+
+    @Test
+    public void upsertPlanet_ByName_CreatesThenUpdatesSameRow() {
+        Planet created = new Planet("Naboo", "temperate", "grassy hills");
+        assertThat(planetRepository.upsertByName(created)).isTrue();
+
+        Planet updated = new Planet("Naboo", "murky", "swamps");
+        assertThat(planetRepository.upsertByName(updated)).isFalse();
+
+        assertThat(updated.getId()).isEqualTo(created.getId());
+        PlanetView sut = planetRepository.findViewByName("Naboo").orElseThrow();
+        assertThat(sut.climate()).isEqualTo("murky");
+        assertThat(sut.version()).isEqualTo(1L);
+        // Os termos antigos saem junto com a atualização
+        assertThat(planetRepository.findPage(PlanetFilter.of(null, "swamps"), null, 10)).extracting(PlanetView::id)
+                .containsExactly(created.getId());
+        assertThat(planetRepository.findPage(PlanetFilter.of("temperate", null), null, 10)).isEmpty();
+    }
 }
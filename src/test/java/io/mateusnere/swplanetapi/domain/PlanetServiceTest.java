@@ -1,23 +1,47 @@
 package io.mateusnere.swplanetapi.domain;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
-import org.springframework.data.domain.Example;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
 
+import static io.mateusnere.swplanetapi.common.PlanetConstants.ALDERAAN;
 import static io.mateusnere.swplanetapi.common.PlanetConstants.INVALID_PLANET;
 import static io.mateusnere.swplanetapi.common.PlanetConstants.PLANET;
+import static io.mateusnere.swplanetapi.common.PlanetConstants.PLANET_VIEW;
+import static io.mateusnere.swplanetapi.common.PlanetConstants.TATOOINE;
+import static io.mateusnere.swplanetapi.common.PlanetConstants.YAVIN_IV;
 import static org.assertj.core.api.Assertions.*;
+import static org.awaitility.Awaitility.await;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 //@SpringBootTest(classes = PlanetService.class) -> esse import não será usado pois quando o utilizamos, é carregado muita coisa do spring que não precisamos para realizar os testes
@@ -33,6 +57,37 @@ public class PlanetServiceTest {
     @Mock
     private PlanetRepository planetRepository;
 
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Spy
+    private PlanetCache planetCache = new PlanetCache(100, Duration.ofMinutes(1));
+
+    @Spy
+    private PlanetCollectionVersion collectionVersion = new PlanetCollectionVersion();
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private PlanetMetrics metrics = new PlanetMetrics(meterRegistry);
+
+    @Spy
+    private PlanetJsonCache jsonCache = new PlanetJsonCache(new ObjectMapper(), collectionVersion,
+            DataSize.ofMegabytes(1), DataSize.ofMegabytes(1));
+
+    @Spy
+    private RecentWrites recentWrites = new RecentWrites(Duration.ofSeconds(1));
+
+    @Mock
+    private PlanetChangeLog changeLog;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    // Sem a foto em memória: getIfAvailable do mock devolve nulo
+    @Mock
+    private ObjectProvider<PlanetSnapshotStore> snapshot;
+
     @Test
     public void createPlanet_WithValidData_ReturnsPlanet() {
 
@@ -47,6 +102,9 @@ public class PlanetServiceTest {
 
         // Assert
         assertThat(sut).isEqualTo(PLANET);
+        verify(planetRepository).indexTokens(PLANET);
+        verify(changeLog).record(PLANET);
+        verify(jsonCache).evictPages();
     }
 
     @Test
@@ -55,67 +113,312 @@ public class PlanetServiceTest {
         assertThatThrownBy(() -> planetService.create(INVALID_PLANET)).isInstanceOf(RuntimeException.class);
     }
 
+    @Test
+    public void createPlanets_InBatch_ReportsEachItem() {
+        Planet valid = new Planet("Naboo", "temperate", "grassy hills");
+        Planet invalid = new Planet("", "temperate", "swamps");
+        Planet repeated = new Planet("Naboo", "temperate", "swamps");
+        Planet existing = new Planet("Tatooine", "arid", "desert");
+        when(planetRepository.findExistingNames(List.of("Naboo", "Tatooine"))).thenReturn(Set.of("Tatooine"));
+
+        List<PlanetBatchResult> sut = planetService.createAll(List.of(valid, invalid, repeated, existing));
+
+        assertThat(sut).extracting(PlanetBatchResult::status).containsExactly(
+                PlanetBatchResult.Status.CREATED,
+                PlanetBatchResult.Status.INVALID,
+                PlanetBatchResult.Status.CONFLICT,
+                PlanetBatchResult.Status.CONFLICT);
+        assertThat(sut).extracting(PlanetBatchResult::index).containsExactly(0, 1, 2, 3);
+        assertThat(sut.get(1).error()).contains("name");
+        verify(planetRepository).insertAll(List.of(valid));
+    }
+
+    @Test
+    public void createPlanets_InBatch_WithNullItem_ReportsItAsInvalid() {
+        Planet valid = new Planet("Naboo", "temperate", "grassy hills");
+        when(planetRepository.findExistingNames(List.of("Naboo"))).thenReturn(Set.of());
+
+        List<PlanetBatchResult> sut = planetService.createAll(Arrays.asList(null, valid));
+
+        assertThat(sut).extracting(PlanetBatchResult::status).containsExactly(
+                PlanetBatchResult.Status.INVALID,
+                PlanetBatchResult.Status.CREATED);
+        assertThat(sut.get(0).planet()).isNull();
+        verify(planetRepository).insertAll(List.of(valid));
+    }
+
+    @Test
+    public void createPlanets_InBatch_WithConcurrentConflict_FallsBackToOneByOne() {
+        Planet naboo = new Planet("Naboo", "temperate", "grassy hills");
+        Planet hoth = new Planet("Hoth", "frozen", "tundra");
+        when(planetRepository.findExistingNames(any())).thenReturn(Set.of());
+        when(planetRepository.insertAll(any())).thenThrow(DataIntegrityViolationException.class);
+        when(planetRepository.save(naboo)).thenThrow(DataIntegrityViolationException.class);
+        when(planetRepository.save(hoth)).thenReturn(hoth);
+
+        List<PlanetBatchResult> sut = planetService.createAll(List.of(naboo, hoth));
+
+        assertThat(sut).extracting(PlanetBatchResult::status).containsExactly(
+                PlanetBatchResult.Status.CONFLICT,
+                PlanetBatchResult.Status.CREATED);
+    }
+
     @Test
     public void getPlanet_ByExistingId_ReturnsPlanet() {
-        when(planetRepository.findById(anyLong())).thenReturn(Optional.of(PLANET));
-        Optional<Planet> optionalPlanet = planetService.getById(1L);
-        assertThat(optionalPlanet).isEqualTo(Optional.of(PLANET));
+        when(planetRepository.findViewById(anyLong())).thenReturn(Optional.of(PLANET_VIEW));
+        Optional<PlanetView> optionalPlanet = planetService.getById(1L);
+        assertThat(optionalPlanet).isEqualTo(Optional.of(PLANET_VIEW));
     }
 
     @Test
     public void getPlanet_ByUnexistingId_ReturnsEmpty() {
-        when(planetRepository.findById(anyLong())).thenReturn(Optional.empty());
-        Optional<Planet> optionalPlanet = planetService.getById(1L);
+        when(planetRepository.findViewById(anyLong())).thenReturn(Optional.empty());
+        Optional<PlanetView> optionalPlanet = planetService.getById(1L);
         assertThat(optionalPlanet).isEmpty();
     }
 
+    @Test
+    public void getPlanet_ById_RecordsTimerAndOutcome() {
+        when(planetRepository.findViewById(1L)).thenReturn(Optional.of(PLANET_VIEW));
+        when(planetRepository.findViewById(2L)).thenReturn(Optional.empty());
+
+        planetService.getById(1L);
+        planetService.getById(2L);
+
+        assertThat(meterRegistry.get("planets.operation").tag("operation", "get-by-id").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("planets.outcome").tags("operation", "get-by-id", "outcome", "hit").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("planets.outcome").tags("operation", "get-by-id", "outcome", "not-found").counter().count()).isEqualTo(1);
+    }
+
     @Test
     public void getPlanet_ByExistingName_ReturnsPlanet() {
-        when(planetRepository.findByName(PLANET.getName())).thenReturn(Optional.of(PLANET));
-        Optional<Planet> optionalPlanet = planetService.getByName(PLANET.getName());
-        assertThat(optionalPlanet).isEqualTo(Optional.of(PLANET));
+        when(planetRepository.findViewByName(PLANET.getName())).thenReturn(Optional.of(PLANET_VIEW));
+        Optional<PlanetView> optionalPlanet = planetService.getByName(PLANET.getName());
+        assertThat(optionalPlanet).isEqualTo(Optional.of(PLANET_VIEW));
     }
 
     @Test
     public void getPlanet_ByUnexistingName_ReturnsEmpty() {
         var unexistingNamePlanet = "unexisting name";
-        when(planetRepository.findByName(unexistingNamePlanet)).thenReturn(Optional.empty());
-        Optional<Planet> optionalPlanet = planetService.getByName(unexistingNamePlanet);
+        when(planetRepository.findViewByName(unexistingNamePlanet)).thenReturn(Optional.empty());
+        Optional<PlanetView> optionalPlanet = planetService.getByName(unexistingNamePlanet);
         assertThat(optionalPlanet).isEmpty();
     }
 
+    @Test
+    public void getPlanet_ByIdTwice_QueriesRepositoryOnce() {
+        when(planetRepository.findViewById(1L)).thenReturn(Optional.of(PLANET_VIEW));
+        planetService.getById(1L);
+        Optional<PlanetView> sut = planetService.getById(1L);
+        assertThat(sut).contains(PLANET_VIEW);
+        verify(planetRepository, times(1)).findViewById(1L);
+    }
+
+    @Test
+    public void lookupPlanets_ByIdsAndNames_ReturnsFoundInRequestOrderAndMissingKeys() {
+        when(planetRepository.findViewById(1L)).thenReturn(Optional.of(PlanetView.of(TATOOINE)));
+        when(planetRepository.findViewsByIdIn(List.of(3L, 99L))).thenReturn(List.of(PlanetView.of(YAVIN_IV)));
+        when(planetRepository.findViewsByNameIn(List.of("alderaan", "Tatooine", "Marte")))
+                .thenReturn(List.of(PlanetView.of(TATOOINE), PlanetView.of(ALDERAAN)));
+        planetService.getById(1L);
+
+        PlanetLookup sut = planetService.lookup(List.of(1L, 3L, 99L, 3L), List.of("alderaan", "Tatooine", "Marte"));
+
+        // O id 1 sai do cache, os repetidos são consultados uma vez e Tatooine aparece uma vez só
+        assertThat(sut.planets()).extracting(PlanetView::name).containsExactly("Tatooine", "Yavin IV", "Alderaan");
+        assertThat(sut.missingIds()).containsExactly(99L);
+        assertThat(sut.missingNames()).containsExactly("Marte");
+        verify(planetRepository, times(1)).findViewsByIdIn(List.of(3L, 99L));
+    }
+
+    @Test
+    public void getPlanet_ByNameAfterRemove_QueriesRepositoryAgain() {
+        Planet planet = new Planet(1L, "Naboo", "temperate", "grassy hills");
+        when(planetRepository.findViewByName("Naboo")).thenReturn(Optional.of(PlanetView.of(planet)));
+        when(planetRepository.deleteByIdReturningCount(1L)).thenReturn(1);
+
+        // Sem o planeta no cache por id, a remoção não sabe o nome e limpa o cache por nome pelo id
+        planetService.getByName("Naboo");
+        planetService.remove(1L);
+        planetService.getByName("Naboo");
+
+        verify(planetRepository, times(2)).findViewByName("Naboo");
+    }
+
     @Test
     public void listPlanets_ReturnsAllPlanets() {
-        List<Planet> planets = new ArrayList<>() {
+        List<PlanetView> planets = new ArrayList<>() {
             {
-                add(PLANET);
+                add(PLANET_VIEW);
             }
         };
-        Example<Planet> example = QueryBuilder.makeQuery(new Planet(PLANET.getClimate(), PLANET.getTerrain()));
-        when(planetRepository.findAll(example)).thenReturn(planets);
-        List<Planet> sut = planetService.list(PLANET.getClimate(), PLANET.getTerrain());
-        assertThat(sut).isNotEmpty();
-        assertThat(sut).hasSize(1);
-        assertThat(sut.getFirst()).isEqualTo(PLANET);
+        PlanetFilter filter = PlanetFilter.of(PLANET.getClimate(), PLANET.getTerrain());
+        when(planetRepository.findPage(filter, null, 11)).thenReturn(planets);
+        PlanetPage sut = planetService.list(PLANET.getClimate(), PLANET.getTerrain(), null, 10);
+        assertThat(sut.planets()).isNotEmpty();
+        assertThat(sut.planets()).hasSize(1);
+        assertThat(sut.planets().getFirst()).isEqualTo(PLANET_VIEW);
+        assertThat(sut.next()).isNull();
+        assertThat(meterRegistry.get("planets.list.size").summary().totalAmount()).isEqualTo(1);
+        assertThat(meterRegistry.get("planets.list.last.size").gauge().value()).isEqualTo(1);
     }
 
     @Test
     public void listPlanets_ReturnsNoPlanet() {
-        when(planetRepository.findAll(any())).thenReturn(Collections.emptyList());
-        List<Planet> sut = planetService.list(PLANET.getClimate(), PLANET.getTerrain());
-        assertThat(sut).isEmpty();
+        when(planetRepository.findPage(any(), any(), anyInt())).thenReturn(Collections.emptyList());
+        PlanetPage sut = planetService.list(PLANET.getClimate(), PLANET.getTerrain(), null, 10);
+        assertThat(sut.planets()).isEmpty();
+        assertThat(sut.next()).isNull();
+    }
+
+    @Test
+    public void listPlanets_WithMorePlanetsThanLimit_ReturnsNextCursor() {
+        List<PlanetView> planets = List.of(new PlanetView(1L, "a", "c", "t", 0L, null), new PlanetView(2L, "b", "c", "t", 0L, null));
+        when(planetRepository.findPage(any(), eq(null), eq(2))).thenReturn(planets);
+        PlanetPage sut = planetService.list(null, null, null, 1);
+        assertThat(sut.planets()).hasSize(1);
+        assertThat(sut.next()).isEqualTo(1L);
+    }
+
+    @Test
+    public void listPlanets_WithLimitAboveMaximum_UsesMaximumPageSize() {
+        when(planetRepository.findPage(any(), any(), anyInt())).thenReturn(Collections.emptyList());
+        planetService.list(null, null, 5L, 100_000);
+        verify(planetRepository).findPage(any(), eq(5L), eq(PlanetService.MAX_PAGE_SIZE + 1));
+    }
+
+    @Test
+    public void listPlanets_ConcurrentIdenticalQueries_ShareOneRepositoryCall() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(planetRepository.findPage(any(), any(), anyInt())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return List.of(PLANET_VIEW);
+        });
+
+        CompletableFuture<PlanetPage> first = CompletableFuture.supplyAsync(() -> planetService.list("arid", null, null, 10));
+        started.await();
+        CompletableFuture<PlanetPage> second = new CompletableFuture<>();
+        Thread waiter = Thread.ofPlatform().start(() -> second.complete(planetService.list("arid", null, null, 10)));
+        await().atMost(Duration.ofSeconds(5)).until(() -> waiter.getState() == Thread.State.WAITING);
+        release.countDown();
+
+        assertThat(first.get().planets()).containsExactly(PLANET_VIEW);
+        assertThat(second.get().planets()).containsExactly(PLANET_VIEW);
+        verify(planetRepository, times(1)).findPage(any(), any(), anyInt());
+    }
+
+    @Test
+    public void streamPlanets_PassesEveryPlanetToConsumer() {
+        when(planetRepository.streamAll(PlanetFilter.of(null, PLANET.getTerrain()))).thenReturn(Stream.of(PLANET_VIEW, PLANET_VIEW));
+        List<PlanetView> sut = new ArrayList<>();
+        planetService.stream(null, PLANET.getTerrain(), sut::add);
+        assertThat(sut).containsExactly(PLANET_VIEW, PLANET_VIEW);
+    }
+
+    @Test
+    public void countPlanets_WithEquivalentFilters_ReusesApproximateTotal() {
+        when(planetRepository.count(any(PlanetFilter.class))).thenReturn(1L);
+        planetService.count("Temperate, tropical", null);
+        planetService.count("tropical,temperate", null);
+        verify(planetRepository, times(1)).count(any(PlanetFilter.class));
+    }
+
+    @Test
+    public void countPlanets_ReusesApproximateTotal() {
+        when(planetRepository.count(any(PlanetFilter.class))).thenReturn(3L);
+        assertThat(planetService.count(null, null)).isEqualTo(3L);
+        assertThat(planetService.count(null, null)).isEqualTo(3L);
+        verify(planetRepository, times(1)).count(any(PlanetFilter.class));
     }
 
 //    Os dois exemplos abaixo são importantes para ver como se faz testes de métodos void
     @Test
     public void removePlanet_withExistingId_doesNotThrowAnyException() {
-        when(planetRepository.findById(1L)).thenReturn(Optional.of(PLANET));
+        when(planetRepository.deleteByIdReturningCount(1L)).thenReturn(1);
         assertThatCode(() -> planetService.remove(1L)).doesNotThrowAnyException();
-        verify(planetRepository, times(1)).deleteById(1L);
+        verify(planetRepository, never()).findById(anyLong());
+        verify(planetRepository, times(1)).removeTokens(1L);
+        verify(changeLog, times(1)).record(new Planet(1L, null, null, null));
+    }
+
+    @Test
+    public void removePlanet_withExistingId_changesCollectionVersion() {
+        when(planetRepository.deleteByIdReturningCount(1L)).thenReturn(1);
+        String before = collectionVersion.current();
+        planetService.remove(1L);
+        assertThat(collectionVersion.current()).isNotEqualTo(before);
+    }
+
+    @Test
+    public void removePlanet_InsideTransaction_evictsCacheOnlyAfterCommit() {
+        when(planetRepository.findViewById(1L)).thenReturn(Optional.of(PlanetView.of(TATOOINE)));
+        when(planetRepository.deleteByIdReturningCount(1L)).thenReturn(1);
+        planetService.getById(1L);
+        String before = collectionVersion.current();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            planetService.remove(1L);
+            verify(planetCache, never()).evict(any());
+            verify(jsonCache, never()).evictPages();
+            assertThat(collectionVersion.current()).isEqualTo(before);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // O nome vem do cache por id, sem ler o banco
+        Planet removed = new Planet(1L, "Tatooine", null, null);
+        verify(planetCache).evict(removed);
+        verify(jsonCache).evict(removed);
+        verify(jsonCache).evictPages();
+        assertThat(collectionVersion.current()).isNotEqualTo(before);
     }
 
     @Test
     public void removePlanet_ByUnexistingId_throwsException() {
         assertThatThrownBy(() -> planetService.remove(99L)).isInstanceOf(EmptyResultDataAccessException.class);
+        verify(planetRepository, never()).removeTokens(anyLong());
+        verify(changeLog, never()).record(any(Planet.class));
+    }
+
+    @Test
+    public void upsertPlanet_ByExistingName_EvictsCachedPlanet() {
+        Planet planet = new Planet(1L, "Tatooine", "arid", "desert");
+        when(planetRepository.findViewByName("Tatooine")).thenReturn(Optional.of(PlanetView.of(planet)));
+        when(planetRepository.upsertByName(any(Planet.class))).thenAnswer(invocation -> {
+            invocation.<Planet>getArgument(0).setId(1L);
+            return false;
+        });
+        planetService.getByName("Tatooine");
+
+        PlanetUpsert sut = planetService.upsert(new Planet("Tatooine", "temperate", "grasslands"));
+
+        assertThat(sut.created()).isFalse();
+        assertThat(sut.planet().getId()).isEqualTo(1L);
+        verify(changeLog).record(sut.planet());
+        planetService.getByName("Tatooine");
+        verify(planetRepository, times(2)).findViewByName("Tatooine");
+        assertThat(meterRegistry.get("planets.outcome").tag("operation", "upsert").tag("outcome", "updated").counter().count()).isEqualTo(1);
+    }
+
+    // O PUT /planets/name/tatooine atualiza a linha "Tatooine" e limpa o planeta guardado com a outra caixa
+    @Test
+    public void upsertPlanet_ByNameInOtherCase_EvictsCachedPlanet() {
+        Planet planet = new Planet(1L, "Tatooine", "arid", "desert");
+        when(planetRepository.findViewByName("Tatooine")).thenReturn(Optional.of(PlanetView.of(planet)));
+        when(planetRepository.upsertByName(any(Planet.class))).thenAnswer(invocation -> {
+            invocation.<Planet>getArgument(0).setId(1L);
+            return false;
+        });
+        planetService.getByName("Tatooine");
+
+        planetService.upsert(new Planet("tatooine", "temperate", "grasslands"));
+
+        planetService.getByName("Tatooine");
+        verify(planetRepository, times(2)).findViewByName("Tatooine");
     }
 }
@@ -0,0 +1,145 @@
+package io.mateusnere.swplanetapi.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PlanetSnapshotTest {
+
+    private static final PlanetView TATOOINE = new PlanetView(1L, "Tatooine", "arid", "desert", 0L,
+            Instant.parse("2025-01-01T10:15:30.123456789Z"));
+    private static final PlanetView ALDERAAN = new PlanetView(2L, "Alderaan", "temperate", "grasslands, mountains", 3L, null);
+    private static final PlanetView YAVIN_IV = new PlanetView(3L, "Yavin IV", "temperate, tropical", "jungle, rainforests", 1L, null);
+    private static final PlanetView HOTH = new PlanetView(5L, "Hoth", "frozen", "tundra, ice caves, mountain ranges", 0L, null);
+
+    @Test
+    public void byIdAndByName_ReturnPlanetFromColumns() {
+        PlanetSnapshot snapshot = snapshot(TATOOINE, ALDERAAN, YAVIN_IV, HOTH);
+
+        assertThat(snapshot.size()).isEqualTo(4);
+        assertThat(snapshot.byId(1L)).isEqualTo(TATOOINE);
+        assertThat(snapshot.byId(4L)).isNull();
+        assertThat(snapshot.byName("Yavin IV")).isEqualTo(YAVIN_IV);
+        assertThat(snapshot.byName("Yavin")).isNull();
+    }
+
+    // Como a collation do MySQL: o nome em outra caixa acha o mesmo planeta, na base e no delta
+    @Test
+    public void byName_IgnoresCase() {
+        PlanetView naboo = new PlanetView(4L, "Naboo", "temperate", "grassy hills", 0L, null);
+        PlanetSnapshot snapshot = snapshot(TATOOINE, ALDERAAN, YAVIN_IV, HOTH).with(naboo);
+
+        assertThat(snapshot.byName("tatooine")).isEqualTo(TATOOINE);
+        assertThat(snapshot.byName("YAVIN iv")).isEqualTo(YAVIN_IV);
+        assertThat(snapshot.byName("NABOO")).isEqualTo(naboo);
+        assertThat(snapshot.with(new PlanetView(4L, "NABOO", "arid", "desert", 1L, null)).byName("naboo").climate())
+                .isEqualTo("arid");
+        assertThat(snapshot.without(1L).byName("TATOOINE")).isNull();
+    }
+
+    @Test
+    public void page_WithFilter_ReturnsMatchingPlanetsInIdOrder() {
+        PlanetSnapshot snapshot = snapshot(TATOOINE, ALDERAAN, YAVIN_IV, HOTH);
+
+        assertThat(snapshot.page(PlanetFilter.of("Temperate", null), null, 10)).containsExactly(ALDERAAN, YAVIN_IV);
+        assertThat(snapshot.page(PlanetFilter.of(null, "mountains"), null, 10)).containsExactly(ALDERAAN);
+        assertThat(snapshot.page(PlanetFilter.of("temperate", "jungle"), null, 10)).containsExactly(YAVIN_IV);
+        assertThat(snapshot.page(PlanetFilter.of("murky", null), null, 10)).isEmpty();
+        assertThat(snapshot.page(PlanetFilter.of(null, null), 1L, 2)).containsExactly(ALDERAAN, YAVIN_IV);
+        assertThat(snapshot.count(PlanetFilter.of("temperate", null))).isEqualTo(2);
+    }
+
+    @Test
+    public void withAndWithout_MergeDeltaWithBaseRows() {
+        PlanetView dryAlderaan = new PlanetView(2L, "Alderaan", "arid", "desert", 4L, null);
+        PlanetView naboo = new PlanetView(4L, "Naboo", "temperate", "grassy hills", 0L, null);
+
+        PlanetSnapshot snapshot = snapshot(TATOOINE, ALDERAAN, YAVIN_IV, HOTH)
+                .with(dryAlderaan)
+                .with(naboo)
+                .without(3L);
+
+        assertThat(snapshot.size()).isEqualTo(4);
+        assertThat(snapshot.deltaSize()).isEqualTo(3);
+        assertThat(snapshot.byId(2L)).isEqualTo(dryAlderaan);
+        assertThat(snapshot.byId(3L)).isNull();
+        assertThat(snapshot.byName("Yavin IV")).isNull();
+        assertThat(snapshot.byName("Naboo")).isEqualTo(naboo);
+        assertThat(snapshot.page(PlanetFilter.of(null, null), null, 10)).containsExactly(TATOOINE, dryAlderaan, naboo, HOTH);
+        assertThat(snapshot.page(PlanetFilter.of("temperate", null), null, 10)).containsExactly(naboo);
+        assertThat(snapshot.count(PlanetFilter.of("arid", null))).isEqualTo(2);
+    }
+
+    @Test
+    public void withAll_MergesBatchIntoDeltaAtOnce() {
+        PlanetView naboo = new PlanetView(4L, "Naboo", "temperate", "grassy hills", 0L, null);
+        PlanetView dryAlderaan = new PlanetView(2L, "Alderaan", "arid", "desert", 4L, null);
+        PlanetView kamino = new PlanetView(6L, "Kamino", "temperate", "ocean", 0L, null);
+
+        PlanetSnapshot snapshot = snapshot(TATOOINE, ALDERAAN, YAVIN_IV, HOTH)
+                .with(naboo)
+                .withAll(List.of(kamino, dryAlderaan), List.of(3L, 4L));
+
+        assertThat(snapshot.deltaSize()).isEqualTo(4);
+        assertThat(snapshot.page(PlanetFilter.of(null, null), null, 10)).containsExactly(TATOOINE, dryAlderaan, HOTH, kamino);
+        assertThat(snapshot.byName("Naboo")).isNull();
+        assertThat(snapshot.byName("kamino")).isEqualTo(kamino);
+        assertThat(snapshot.count(PlanetFilter.of("arid", null))).isEqualTo(2);
+    }
+
+    @Test
+    public void compact_KeepsPlanetsAndClearsDelta() {
+        PlanetView naboo = new PlanetView(4L, "Naboo", "temperate", "grassy hills", 0L, null);
+
+        PlanetSnapshot snapshot = snapshot(TATOOINE, ALDERAAN, YAVIN_IV, HOTH).with(naboo).without(1L).compact();
+
+        assertThat(snapshot.deltaSize()).isZero();
+        assertThat(snapshot.page(PlanetFilter.of(null, null), null, 10)).containsExactly(ALDERAAN, YAVIN_IV, naboo, HOTH);
+        assertThat(snapshot.byName("Tatooine")).isNull();
+        assertThat(snapshot.byName("Naboo")).isEqualTo(naboo);
+    }
+
+    // Uma remoção que chegou durante a carga vale mesmo para um planeta que a foto anterior não tinha
+    @Test
+    public void replay_AppliesDeltaOfPreviousSnapshot() {
+        PlanetView naboo = new PlanetView(4L, "Naboo", "temperate", "grassy hills", 0L, null);
+        PlanetSnapshot duringLoad = PlanetSnapshot.EMPTY.with(naboo).without(1L);
+
+        PlanetSnapshot snapshot = snapshot(TATOOINE, ALDERAAN).replay(duringLoad);
+
+        assertThat(snapshot.page(PlanetFilter.of(null, null), null, 10)).containsExactly(ALDERAAN, naboo);
+    }
+
+    @Test
+    public void columnBytes_StaysFewBytesPerPlanet() {
+        PlanetSnapshot.Builder builder = new PlanetSnapshot.Builder();
+        for (long id = 1; id <= 10_000; id++) {
+            builder.add(new PlanetView(id, "Planet " + id, "temperate", "grasslands, mountains", 0L, null));
+        }
+
+        PlanetSnapshot snapshot = builder.build();
+
+        // Duas dezenas de bytes do nome e 40 das colunas numéricas, contra algumas centenas de um PlanetView
+        assertThat(snapshot.columnBytes() / snapshot.size()).isLessThan(100);
+        assertThat(snapshot.byName("Planet 9999").id()).isEqualTo(9999L);
+    }
+
+    @Test
+    public void builder_WithIdsOutOfOrder_ThrowsException() {
+        PlanetSnapshot.Builder builder = new PlanetSnapshot.Builder().add(ALDERAAN);
+
+        assertThatThrownBy(() -> builder.add(TATOOINE)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static PlanetSnapshot snapshot(PlanetView... planets) {
+        PlanetSnapshot.Builder builder = new PlanetSnapshot.Builder();
+        for (PlanetView planet : planets) {
+            builder.add(planet);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,109 @@
+package io.mateusnere.swplanetapi.domain;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class ReplicaDataSourceTest {
+
+    private final DataSource primary = mock(DataSource.class);
+
+    private final DataSource firstReplica = mock(DataSource.class);
+
+    private final DataSource secondReplica = mock(DataSource.class);
+
+    private final Connection primaryConnection = mock(Connection.class);
+
+    private final Connection firstConnection = mock(Connection.class);
+
+    private final Connection secondConnection = mock(Connection.class);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        lenient().when(firstReplica.getConnection()).thenReturn(firstConnection);
+        lenient().when(secondReplica.getConnection()).thenReturn(secondConnection);
+    }
+
+    @AfterEach
+    public void clearTransaction() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    public void getConnection_OutsideReadOnlyTransaction_UsesPrimary() throws SQLException {
+        ReplicaDataSource sut = new ReplicaDataSource(primary, List.of(firstReplica), Duration.ofSeconds(10), meterRegistry);
+
+        assertThat(sut.getConnection()).isSameAs(primaryConnection);
+        verifyNoInteractions(firstReplica);
+        assertThat(meterRegistry.get("planets.datasource.connections").tag("access", "write").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void getConnection_WithCredentials_UsesPrimary() throws SQLException {
+        ReplicaDataSource sut = new ReplicaDataSource(primary, List.of(firstReplica), Duration.ofSeconds(10), meterRegistry);
+        when(primary.getConnection("reporting", "secret")).thenReturn(primaryConnection);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertThat(sut.getConnection("reporting", "secret")).isSameAs(primaryConnection);
+        verifyNoInteractions(firstReplica);
+    }
+
+    @Test
+    public void getConnection_InReadOnlyTransaction_RotatesReplicas() throws SQLException {
+        ReplicaDataSource sut = new ReplicaDataSource(primary, List.of(firstReplica, secondReplica), Duration.ofSeconds(10), meterRegistry);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertThat(List.of(sut.getConnection(), sut.getConnection(), sut.getConnection()))
+                .containsExactly(firstConnection, secondConnection, firstConnection);
+        verifyNoInteractions(primary);
+    }
+
+    @Test
+    public void getConnection_AfterRecentWrite_UsesPrimary() throws SQLException {
+        ReplicaDataSource sut = new ReplicaDataSource(primary, List.of(firstReplica), Duration.ofSeconds(10), meterRegistry);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        Connection connection = RecentWrites.onPrimary(() -> {
+            try {
+                return sut.getConnection();
+            } catch (SQLException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+
+        assertThat(connection).isSameAs(primaryConnection);
+        verifyNoInteractions(firstReplica);
+    }
+
+    @Test
+    public void getConnection_WithFailingReplica_FallsBackAndSkipsItUntilRetry() throws SQLException, InterruptedException {
+        when(firstReplica.getConnection()).thenThrow(new SQLException("Connection refused"));
+        ReplicaDataSource sut = new ReplicaDataSource(primary, List.of(firstReplica), Duration.ofMillis(200), meterRegistry);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertThat(sut.getConnection()).isSameAs(primaryConnection);
+        assertThat(sut.getConnection()).isSameAs(primaryConnection);
+        assertThat(sut.healthyReplicas()).isZero();
+        verify(firstReplica, times(1)).getConnection();
+
+        Thread.sleep(250);
+        assertThat(sut.healthyReplicas()).isOne();
+        sut.getConnection();
+        verify(firstReplica, times(2)).getConnection();
+    }
+}
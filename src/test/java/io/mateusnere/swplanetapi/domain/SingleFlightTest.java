@@ -0,0 +1,94 @@
+package io.mateusnere.swplanetapi.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+public class SingleFlightTest {
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void execute_ConcurrentCallsWithSameKey_ShareOneLoad() throws Exception {
+        CompletableFuture<String> leader = run("Tatooine", blockingLoader(() -> "arid"));
+        started.await();
+        CompletableFuture<String> waiter = waiter("Tatooine");
+
+        release.countDown();
+
+        assertThat(leader.get()).isEqualTo("arid");
+        assertThat(waiter.get()).isEqualTo("arid");
+        assertThat(loads).hasValue(1);
+        assertThat(singleFlight.inFlight()).isZero();
+    }
+
+    @Test
+    public void execute_WhenLoadFails_PropagatesErrorToWaitersAndLoadsAgainLater() throws Exception {
+        CompletableFuture<String> leader = run("Tatooine", blockingLoader(() -> {
+            throw new IllegalStateException("banco fora do ar");
+        }));
+        started.await();
+        CompletableFuture<String> waiter = waiter("Tatooine");
+
+        release.countDown();
+
+        assertThatThrownBy(leader::get).isInstanceOf(ExecutionException.class).hasCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(waiter::get).isInstanceOf(ExecutionException.class).hasCauseInstanceOf(IllegalStateException.class);
+        // O erro não fica guardado
+        assertThat(singleFlight.execute("Tatooine", () -> "arid")).isEqualTo("arid");
+    }
+
+    @Test
+    public void execute_DifferentKeys_LoadSeparately() {
+        singleFlight.execute("Tatooine", () -> "arid" + loads.incrementAndGet());
+        String sut = singleFlight.execute("Hoth", () -> "frozen" + loads.incrementAndGet());
+
+        assertThat(sut).isEqualTo("frozen2");
+    }
+
+    private Supplier<String> blockingLoader(Supplier<String> result) {
+        return () -> {
+            loads.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                throw new IllegalStateException(ex);
+            }
+            return result.get();
+        };
+    }
+
+    private CompletableFuture<String> run(String key, Supplier<String> loader) {
+        return CompletableFuture.supplyAsync(() -> singleFlight.execute(key, loader));
+    }
+
+    // Chamada que só volta quando a consulta em andamento terminar
+    private CompletableFuture<String> waiter(String key) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        Thread thread = Thread.ofPlatform().start(() -> {
+            try {
+                result.complete(singleFlight.execute(key, () -> "nunca chamado"));
+            } catch (RuntimeException ex) {
+                result.completeExceptionally(ex);
+            }
+        });
+        await().atMost(Duration.ofSeconds(5)).until(() -> thread.getState() == Thread.State.WAITING);
+        return result;
+    }
+}
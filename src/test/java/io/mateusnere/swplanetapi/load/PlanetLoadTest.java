@@ -0,0 +1,294 @@
+package io.mateusnere.swplanetapi.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.mateusnere.swplanetapi.domain.Planet;
+import io.mateusnere.swplanetapi.domain.PlanetRepository;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * Teste de carga ponta a ponta: sobe a aplicação sobre H2, semeia "loadtest.planets" planetas e dispara
+ * requisições numa taxa fixa ("loadtest.rate" por segundo), sem esperar a resposta anterior.
+ * A latência é medida a partir do instante em que a requisição deveria ter saído, então uma aplicação
+ * que trava também atrasa as requisições seguintes no resultado (sem "coordinated omission").
+ *
+ * Só roda com -Dloadtest.enabled=true, normalmente pelo perfil: mvn -Pload-test test
+ * */
+@EnabledIfSystemProperty(named = "loadtest.enabled", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "planets.tokens.backfill-on-startup=false",
+        "logging.level.root=WARN"
+})
+public class PlanetLoadTest {
+
+    private static final String[] CLIMATES = {"arid", "temperate", "tropical", "frozen", "murky"};
+    private static final String[] TERRAINS = {"desert", "grasslands", "mountains", "jungle", "ocean", "swamp"};
+
+    private static final int PLANETS = Integer.getInteger("loadtest.planets", 10_000);
+    private static final int RATE = Integer.getInteger("loadtest.rate", 50);
+    private static final int WARMUP_SECONDS = Integer.getInteger("loadtest.warmup", 10);
+    private static final int DURATION_SECONDS = Integer.getInteger("loadtest.duration", 30);
+    private static final int MAX_IN_FLIGHT = Integer.getInteger("loadtest.max-in-flight", 1000);
+    private static final String REPORT = System.getProperty("loadtest.report", "target/load-test-result.json");
+
+    // Limites que reprovam o build; cada endpoint pode ter o seu, ex.: -Dloadtest.max-p99-ms.list=800
+    private static final double MAX_P99_MILLIS = Double.parseDouble(System.getProperty("loadtest.max-p99-ms", "500"));
+    private static final double MAX_P999_MILLIS = Double.parseDouble(System.getProperty("loadtest.max-p999-ms", "2000"));
+    private static final double MAX_ERROR_RATE = Double.parseDouble(System.getProperty("loadtest.max-error-rate", "0.01"));
+
+    enum Operation {
+        ID(40), NAME(20), LIST(25), CREATE(10), DELETE(5);
+
+        final int weight;
+
+        Operation(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    PlanetRepository planetRepository;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final ConcurrentLinkedQueue<Long> createdIds = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong createSequence = new AtomicLong();
+
+    @Test
+    public void mixedWorkload_AtFixedRate_StaysWithinThresholds() throws IOException {
+        List<Planet> seed = new ArrayList<>(PLANETS);
+        for (int i = 1; i <= PLANETS; i++) {
+            seed.add(new Planet("Planet " + i, CLIMATES[i % CLIMATES.length],
+                    TERRAINS[i % TERRAINS.length] + ", " + TERRAINS[(i / 7) % TERRAINS.length]));
+        }
+        long[] ids = planetRepository.insertAll(seed).stream().mapToLong(Planet::getId).toArray();
+
+        run(ids, WARMUP_SECONDS, null);
+        Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new Stats());
+        }
+        run(ids, DURATION_SECONDS, stats);
+
+        report(stats);
+
+        for (Map.Entry<Operation, Stats> entry : stats.entrySet()) {
+            String name = entry.getKey().name().toLowerCase();
+            Stats result = entry.getValue();
+            assertThat(result.errorRate()).as("taxa de erros de %s", name)
+                    .isLessThanOrEqualTo(threshold("loadtest.max-error-rate", name, MAX_ERROR_RATE));
+            assertThat(result.percentileMillis(99)).as("p99 de %s (ms)", name)
+                    .isLessThanOrEqualTo(threshold("loadtest.max-p99-ms", name, MAX_P99_MILLIS));
+            assertThat(result.percentileMillis(99.9)).as("p999 de %s (ms)", name)
+                    .isLessThanOrEqualTo(threshold("loadtest.max-p999-ms", name, MAX_P999_MILLIS));
+        }
+    }
+
+    private void run(long[] ids, int seconds, Map<Operation, Stats> stats) {
+        Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+        long interval = TimeUnit.SECONDS.toNanos(1) / RATE;
+        long start = System.nanoTime();
+        long total = (long) RATE * seconds;
+
+        for (long i = 0; i < total; i++) {
+            long intended = start + i * interval;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            Operation picked = pick();
+            // Só remove planetas criados pelo próprio teste, para a base semeada não encolher. Sem nenhum ainda,
+            // a vaga vira uma criação, medida e conferida como criação
+            Long removable = picked == Operation.DELETE ? createdIds.poll() : null;
+            Operation operation = picked == Operation.DELETE && removable == null ? Operation.CREATE : picked;
+            HttpRequest request = request(operation, ids, removable);
+            Stats target = stats == null ? null : stats.get(operation);
+
+            // Sem vaga para mais uma requisição em andamento: conta como erro em vez de atrasar o gerador
+            if (!inFlight.tryAcquire()) {
+                if (target != null) {
+                    target.dropped.incrementAndGet();
+                }
+                continue;
+            }
+            client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                    .whenComplete((response, ex) -> {
+                        inFlight.release();
+                        boolean ok = ex == null && response.statusCode() == expectedStatus(operation);
+                        if (ok && operation == Operation.CREATE) {
+                            rememberCreated(response.body());
+                        }
+                        if (target != null) {
+                            target.record(System.nanoTime() - intended, ok);
+                        }
+                    });
+        }
+        inFlight.acquireUninterruptibly(MAX_IN_FLIGHT);
+    }
+
+    private Operation pick() {
+        int roll = ThreadLocalRandom.current().nextInt(100);
+        for (Operation operation : Operation.values()) {
+            roll -= operation.weight;
+            if (roll < 0) {
+                return operation;
+            }
+        }
+        return Operation.ID;
+    }
+
+    private HttpRequest request(Operation operation, long[] ids, Long removable) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int seeded = random.nextInt(ids.length);
+        return switch (operation) {
+            case ID -> get("/planets/" + ids[seeded]);
+            case NAME -> get("/planets/name/" + URLEncoder.encode("Planet " + (seeded + 1), StandardCharsets.UTF_8).replace("+", "%20"));
+            case LIST -> get("/planets?climate=" + CLIMATES[random.nextInt(CLIMATES.length)]
+                    + "&terrain=" + TERRAINS[random.nextInt(TERRAINS.length)] + "&limit=50");
+            case CREATE -> create();
+            case DELETE -> HttpRequest.newBuilder(uri("/planets/" + removable)).DELETE().build();
+        };
+    }
+
+    private int expectedStatus(Operation operation) {
+        return switch (operation) {
+            case CREATE -> 201;
+            case DELETE -> 204;
+            default -> 200;
+        };
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(uri(path)).GET().build();
+    }
+
+    private HttpRequest create() {
+        String body = "{\"name\":\"Load " + createSequence.incrementAndGet()
+                + "\",\"climate\":\"temperate\",\"terrain\":\"grasslands, mountains\"}";
+        return HttpRequest.newBuilder(uri("/planets"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private void rememberCreated(String body) {
+        try {
+            createdIds.add(objectMapper.readValue(body, Planet.class).getId());
+        } catch (IOException ignored) {
+            // O status já foi conferido; um corpo ilegível só deixa o planeta sem ser removido
+        }
+    }
+
+    private static double threshold(String property, String operation, double fallback) {
+        String value = System.getProperty(property + "." + operation);
+        return value == null ? fallback : Double.parseDouble(value);
+    }
+
+    private void report(Map<Operation, Stats> stats) throws IOException {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("planets", PLANETS);
+        result.put("rate", RATE);
+        result.put("durationSeconds", DURATION_SECONDS);
+
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        System.out.printf("%-8s %10s %8s %10s %10s %10s %10s%n", "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms");
+        for (Map.Entry<Operation, Stats> entry : stats.entrySet()) {
+            Stats s = entry.getValue();
+            String name = entry.getKey().name().toLowerCase();
+            double throughput = s.histogram.getTotalCount() / (double) DURATION_SECONDS;
+            System.out.printf("%-8s %10d %8d %10.1f %10.2f %10.2f %10.2f%n", name, s.histogram.getTotalCount(), s.errors(),
+                    throughput, s.percentileMillis(50), s.percentileMillis(99), s.percentileMillis(99.9));
+
+            Map<String, Object> endpoint = new LinkedHashMap<>();
+            endpoint.put("requests", s.histogram.getTotalCount());
+            endpoint.put("errors", s.errors());
+            endpoint.put("throughput", throughput);
+            endpoint.put("p50Millis", s.percentileMillis(50));
+            endpoint.put("p99Millis", s.percentileMillis(99));
+            endpoint.put("p999Millis", s.percentileMillis(99.9));
+            endpoints.put(name, endpoint);
+        }
+        result.put("endpoints", endpoints);
+
+        Path path = Path.of(REPORT);
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(path.toFile(), result);
+    }
+
+    private static class Stats {
+
+        private final Histogram histogram = new ConcurrentHistogram(3);
+
+        // Respostas com status inesperado ou falha de conexão (entram no histograma)
+        private final AtomicLong failed = new AtomicLong();
+
+        // Requisições que nem saíram por excesso de requisições em andamento
+        private final AtomicLong dropped = new AtomicLong();
+
+        void record(long nanos, boolean ok) {
+            histogram.recordValue(nanos);
+            if (!ok) {
+                failed.incrementAndGet();
+            }
+        }
+
+        long errors() {
+            return failed.get() + dropped.get();
+        }
+
+        double percentileMillis(double percentile) {
+            return histogram.getValueAtPercentile(percentile) / 1_000_000.0;
+        }
+
+        double errorRate() {
+            long total = histogram.getTotalCount() + dropped.get();
+            return total == 0 ? 0 : errors() / (double) total;
+        }
+    }
+}
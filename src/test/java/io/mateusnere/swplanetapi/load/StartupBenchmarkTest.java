@@ -0,0 +1,171 @@
+package io.mateusnere.swplanetapi.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * Benchmark de subida: roda o jar extraído por mvn -Pfast-startup package em cada modo e mede o tempo entre
+ * iniciar o processo e a primeira resposta 200 do GET /planets (que já passa pelo JPA). Cada subida usa um H2
+ * em memória novo, então o banco não pesa na comparação.
+ *
+ * - baseline: configuração padrão (Hibernate com ddl-auto=update)
+ * - fast-startup: perfil fast-startup (schema gerenciado, sem metadados do JDBC na subida)
+ * - aot: o perfil mais o código gerado pelo processamento AOT
+ * - aot-cds: o anterior com o arquivo CDS da subida de treino
+ *
+ * Só roda com -Dstartup.enabled=true, normalmente pelo perfil: mvn -Pstartup-benchmark test
+ * */
+@EnabledIfSystemProperty(named = "startup.enabled", matches = "true")
+public class StartupBenchmarkTest {
+
+    private static final Path DIRECTORY = Path.of(System.getProperty("startup.directory", "target/fast-startup"));
+    private static final String JAR = System.getProperty("startup.jar", "sw-planet-api-0.0.1-SNAPSHOT.jar");
+    private static final int RUNS = Integer.getInteger("startup.runs", 5);
+    private static final int TIMEOUT_SECONDS = Integer.getInteger("startup.timeout", 120);
+    private static final String REPORT = System.getProperty("startup.report", "target/startup-benchmark.json");
+
+    enum Mode {
+        BASELINE(List.of(), List.of()),
+        FAST_STARTUP(List.of(), FAST_STARTUP_ARGS),
+        AOT(List.of("-Dspring.aot.enabled=true"), FAST_STARTUP_ARGS),
+        AOT_CDS(List.of("-Dspring.aot.enabled=true", "-XX:SharedArchiveFile=application.jsa"), FAST_STARTUP_ARGS);
+
+        final List<String> jvmArgs;
+
+        final List<String> appArgs;
+
+        Mode(List<String> jvmArgs, List<String> appArgs) {
+            this.jvmArgs = jvmArgs;
+            this.appArgs = appArgs;
+        }
+
+        String label() {
+            return name().toLowerCase().replace('_', '-');
+        }
+    }
+
+    // O perfil é configurado para o MySQL; aqui o schema e o dialeto são os do H2
+    private static final List<String> FAST_STARTUP_ARGS = List.of(
+            "--spring.profiles.active=fast-startup",
+            "--spring.sql.init.platform=h2",
+            "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect");
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+
+    @Test
+    public void firstSuccessfulRequest_InEachMode() throws Exception {
+        assertThat(DIRECTORY.resolve(JAR)).as("rode antes: mvn -Pfast-startup package").exists();
+        assertThat(DIRECTORY.resolve("application.jsa")).as("rode antes: mvn -Pfast-startup package").exists();
+
+        Map<Mode, long[]> results = new LinkedHashMap<>();
+        for (Mode mode : Mode.values()) {
+            // A primeira subida só aquece o cache de arquivos do sistema operacional
+            start(mode, 0);
+            long[] millis = new long[RUNS];
+            for (int run = 1; run <= RUNS; run++) {
+                millis[run - 1] = start(mode, run);
+            }
+            Arrays.sort(millis);
+            results.put(mode, millis);
+        }
+
+        report(results);
+    }
+
+    private long start(Mode mode, int run) throws IOException, InterruptedException {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(mode.jvmArgs);
+        command.addAll(List.of("-jar", JAR,
+                "--server.port=" + port,
+                "--spring.datasource.url=jdbc:h2:mem:startup",
+                "--spring.main.banner-mode=off"));
+        command.addAll(mode.appArgs);
+
+        Path log = Path.of("target", "startup-benchmark", mode.label() + "-" + run + ".log").toAbsolutePath();
+        Files.createDirectories(log.getParent());
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/planets?limit=1")).GET().build();
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .directory(DIRECTORY.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        try {
+            long deadline = start + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+            while (System.nanoTime() < deadline) {
+                assertThat(process.isAlive()).as("%s terminou antes de responder; ver %s", mode.label(), log).isTrue();
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    }
+                } catch (ConnectException ignored) {
+                    // A porta ainda não está aberta
+                }
+                Thread.sleep(5);
+            }
+            throw new AssertionError(mode.label() + " não respondeu em " + TIMEOUT_SECONDS + "s; ver " + log);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private void report(Map<Mode, long[]> results) throws IOException {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("runs", RUNS);
+
+        Map<String, Object> modes = new LinkedHashMap<>();
+        System.out.printf("%-14s %10s %10s %10s%n", "mode", "p50 ms", "min ms", "max ms");
+        for (Map.Entry<Mode, long[]> entry : results.entrySet()) {
+            long[] millis = entry.getValue();
+            long median = millis[millis.length / 2];
+            System.out.printf("%-14s %10d %10d %10d%n", entry.getKey().label(), median, millis[0], millis[millis.length - 1]);
+
+            Map<String, Object> mode = new LinkedHashMap<>();
+            mode.put("medianMillis", median);
+            mode.put("minMillis", millis[0]);
+            mode.put("maxMillis", millis[millis.length - 1]);
+            mode.put("runsMillis", millis);
+            modes.put(entry.getKey().label(), mode);
+        }
+        result.put("modes", modes);
+
+        Path path = Path.of(REPORT);
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(path.toFile(), result);
+    }
+}
@@ -0,0 +1,91 @@
+package io.mateusnere.swplanetapi.web;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdaptiveLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(10);
+
+    // Janela zero: cada rodada de 10 amostras fecha uma janela
+    private final AdaptiveLimiter limiter = new AdaptiveLimiter(20, 4, 100, Duration.ZERO, 10);
+
+    @Test
+    public void tryAcquire_AboveLimit_RejectsUntilRelease() {
+        for (int i = 0; i < 20; i++) {
+            assertThat(limiter.tryAcquire()).isTrue();
+        }
+
+        assertThat(limiter.tryAcquire()).isFalse();
+        limiter.release(FAST, true);
+        assertThat(limiter.tryAcquire()).isTrue();
+    }
+
+    @Test
+    public void release_WithStableLatencyAtFullUse_RaisesLimit() {
+        for (int i = 0; i < 5; i++) {
+            saturate(FAST);
+        }
+
+        assertThat(limiter.limit()).isGreaterThan(20);
+    }
+
+    @Test
+    public void release_WithRisingLatency_LowersLimit() {
+        saturate(FAST);
+        int before = limiter.limit();
+
+        for (int i = 0; i < 5; i++) {
+            saturate(SLOW);
+        }
+
+        assertThat(limiter.limit()).isLessThan(before).isGreaterThanOrEqualTo(4);
+    }
+
+    @Test
+    public void release_WithLowTraffic_KeepsLimit() {
+        for (int i = 0; i < 30; i++) {
+            assertThat(limiter.tryAcquire()).isTrue();
+            limiter.release(FAST, true);
+        }
+
+        assertThat(limiter.limit()).isEqualTo(20);
+    }
+
+    @Test
+    public void release_WithFailures_LowersLimitDownToMin() {
+        // Dez falhas fecham uma janela
+        for (int i = 0; i < 10; i++) {
+            assertThat(limiter.tryAcquire()).isTrue();
+            limiter.release(FAST, false);
+        }
+
+        assertThat(limiter.limit()).isEqualTo(18);
+
+        for (int i = 0; i < 50; i++) {
+            saturate(FAST, false);
+        }
+
+        assertThat(limiter.limit()).isEqualTo(4);
+    }
+
+    // Ocupa todas as vagas e devolve todas com a mesma latência
+    private void saturate(long rttNanos) {
+        saturate(rttNanos, true);
+    }
+
+    private void saturate(long rttNanos, boolean success) {
+        int permits = 0;
+        while (limiter.tryAcquire()) {
+            permits++;
+        }
+        for (int i = 0; i < permits; i++) {
+            limiter.release(rttNanos, success);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package io.mateusnere.swplanetapi.web;
+
+import io.mateusnere.swplanetapi.web.ConcurrencyLimitInterceptor.Route;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/*
+ * Ocupa as vagas de uma rota direto no limitador, como se houvesse requisições em andamento, e confere a
+ * resposta das próximas requisições
+ * */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:concurrency;DB_CLOSE_DELAY=-1",
+        "planets.concurrency.enabled=true",
+        "planets.concurrency.initial-limit=10",
+        "planets.concurrency.window=1h"
+})
+@AutoConfigureMockMvc
+@Sql(scripts = {"/import_planets.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(scripts = {"/remove_planets.sql"}, executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+public class ConcurrencyLimitTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ConcurrencyLimitInterceptor interceptor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("requestMappingHandlerMapping")
+    private RequestMappingHandlerMapping handlerMapping;
+
+    private int held;
+
+    @AfterEach
+    public void releaseHeld() {
+        for (; held > 0; held--) {
+            interceptor.limiter(Route.GET_BY_ID).release(0, false);
+        }
+    }
+
+    @Test
+    public void planetControllerMappings_AllHaveRoute() {
+        assertThat(handlerMapping.getHandlerMethods().values())
+                .filteredOn(method -> method.getBeanType().equals(PlanetController.class))
+                .isNotEmpty()
+                .allSatisfy(method -> assertThat(ConcurrencyLimitInterceptor.route(method, new MockHttpServletRequest()))
+                        .as(method.getMethod().getName())
+                        .isNotNull());
+    }
+
+    @Test
+    public void getPlanet_AboveRouteLimit_RejectsWithRetryAfter() throws Exception {
+        holdGetById(10);
+
+        mockMvc.perform(get("/planets/1"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+
+        assertThat(meterRegistry.get("planets.concurrency.rejected").tag("route", "get-by-id").tag("reason", "limit")
+                .counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("planets.concurrency.limit").tag("route", "get-by-id").gauge().value()).isEqualTo(10);
+    }
+
+    @Test
+    public void listPlanets_WhileCheapReadsUnderPressure_ShedsOnlyUnfilteredList() throws Exception {
+        holdGetById(7);
+
+        mockMvc.perform(get("/planets"))
+                .andExpect(status().isServiceUnavailable());
+        mockMvc.perform(get("/planets").param("climate", "arid"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/planets/name/Tatooine"))
+                .andExpect(status().isOk());
+
+        assertThat(meterRegistry.get("planets.concurrency.rejected").tag("route", "list-unfiltered").tag("reason", "priority")
+                .counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void listPlanets_WithoutPressure_ReleasesPermit() throws Exception {
+        mockMvc.perform(get("/planets")).andExpect(status().isOk());
+
+        assertThat(interceptor.limiter(Route.LIST_UNFILTERED).inFlight()).isZero();
+    }
+
+    @Test
+    public void streamPlanets_KeepsPermitUntilAsyncDispatchEnds() throws Exception {
+        MvcResult result = mockMvc.perform(get("/planets/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result.getAsyncResult();
+        assertThat(interceptor.limiter(Route.STREAM).inFlight()).isEqualTo(1);
+
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+
+        assertThat(interceptor.limiter(Route.STREAM).inFlight()).isZero();
+    }
+
+    private void holdGetById(int permits) {
+        for (int i = 0; i < permits; i++) {
+            assertThat(interceptor.limiter(Route.GET_BY_ID).tryAcquire()).isTrue();
+            held++;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package io.mateusnere.swplanetapi.web;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.mateusnere.swplanetapi.domain.Planet;
+import io.mateusnere.swplanetapi.domain.PlanetJsonCache;
+import io.mateusnere.swplanetapi.domain.PlanetRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * Sobe a aplicação com servidor de verdade sobre um H2 em memória: a compressão é feita pelo Tomcat,
+ * então não aparece no MockMvc. O HttpClient do JDK não descomprime as respostas sozinho.
+ * Os planetas são semeados pelo repositório, para os ids gerados não colidirem com os do import_planets.sql
+ * */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:negotiation;DB_CLOSE_DELAY=-1"
+})
+@Sql(scripts = {"/remove_planets.sql"}, executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+public class ContentNegotiationTest {
+
+    private static final TypeReference<List<Planet>> PLANETS = new TypeReference<>() {
+    };
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlanetRepository planetRepository;
+
+    @Autowired
+    private PlanetJsonCache jsonCache;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private Long tatooineId;
+
+    @BeforeEach
+    public void setUp() {
+        jsonCache.evictPages();
+        tatooineId = planetRepository.insertAll(List.of(
+                new Planet("Tatooine", "Arid", "Desert"),
+                new Planet("Alderaan", "temperate", "grasslands, mountains"),
+                new Planet("Yavin IV", "temperate, tropical", "jungle, rainforest"))).getFirst().getId();
+    }
+
+    @Test
+    public void listPlanets_WithoutAccept_ReturnsJson() throws Exception {
+        HttpResponse<byte[]> response = send(get("/planets?climate=temperate"));
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Type")).hasValueSatisfying(type -> assertThat(type).startsWith("application/json"));
+        assertThat(objectMapper.readValue(response.body(), PLANETS)).extracting(Planet::getName)
+                .containsExactly("Alderaan", "Yavin IV");
+    }
+
+    @Test
+    public void listPlanets_AcceptingCbor_ReturnsSamePlanetsAsJson() throws Exception {
+        HttpResponse<byte[]> response = send(get("/planets?climate=temperate").header("Accept", "application/cbor"));
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Type")).hasValue("application/cbor");
+        assertThat(response.headers().firstValue("Vary")).hasValueSatisfying(vary -> assertThat(vary).containsIgnoringCase("accept"));
+        assertThat(new ObjectMapper(new CBORFactory()).readValue(response.body(), PLANETS)).extracting(Planet::getName)
+                .containsExactly("Alderaan", "Yavin IV");
+    }
+
+    @Test
+    public void getPlanet_AcceptingSmile_ReturnsPlanetWithOwnEtag() throws Exception {
+        HttpResponse<byte[]> json = send(get("/planets/" + tatooineId));
+        HttpResponse<byte[]> smile = send(get("/planets/" + tatooineId).header("Accept", "application/x-jackson-smile"));
+
+        assertThat(smile.statusCode()).isEqualTo(200);
+        assertThat(smile.headers().firstValue("Content-Type")).hasValue("application/x-jackson-smile");
+        assertThat(new ObjectMapper(new SmileFactory()).readValue(smile.body(), Planet.class).getName()).isEqualTo("Tatooine");
+        assertThat(smile.headers().firstValue("ETag")).isNotEqualTo(json.headers().firstValue("ETag"));
+    }
+
+    @Test
+    public void getPlanet_PreferringJsonOverCbor_ReturnsJson() throws Exception {
+        HttpResponse<byte[]> response = send(get("/planets/" + tatooineId).header("Accept", "application/cbor;q=0.5, application/json"));
+
+        assertThat(response.headers().firstValue("Content-Type")).hasValue("application/json");
+    }
+
+    @Test
+    public void createPlanet_WithCborBody_ReturnsCreated() throws Exception {
+        byte[] body = new ObjectMapper(new CBORFactory()).writeValueAsBytes(new Planet("Hoth", "frozen", "tundra, ice caves"));
+        HttpResponse<byte[]> response = send(HttpRequest.newBuilder(uri("/planets"))
+                .header("Content-Type", "application/cbor")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body)));
+
+        assertThat(response.statusCode()).isEqualTo(201);
+        assertThat(objectMapper.readValue(response.body(), Planet.class).getName()).isEqualTo("Hoth");
+    }
+
+    @Test
+    public void listPlanets_AboveThreshold_IsGzipped() throws Exception {
+        List<Planet> seed = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            seed.add(new Planet("Planet " + i, "murky", "swamp, jungle"));
+        }
+        planetRepository.insertAll(seed);
+
+        HttpResponse<byte[]> response = send(get("/planets?climate=murky&limit=100").header("Accept-Encoding", "gzip"));
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Encoding")).hasValue("gzip");
+        try (InputStream body = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            assertThat(objectMapper.readValue(body, PLANETS)).hasSize(100);
+        }
+    }
+
+    @Test
+    public void getPlanet_BelowThreshold_IsNotCompressed() throws Exception {
+        HttpResponse<byte[]> response = send(get("/planets/" + tatooineId).header("Accept-Encoding", "gzip"));
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Encoding")).isEmpty();
+        assertThat(objectMapper.readValue(response.body(), Planet.class).getName()).isEqualTo("Tatooine");
+    }
+
+    private HttpRequest.Builder get(String path) {
+        return HttpRequest.newBuilder(uri(path)).GET();
+    }
+
+    private HttpResponse<byte[]> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+}
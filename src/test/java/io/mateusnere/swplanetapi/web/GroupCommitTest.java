@@ -0,0 +1,85 @@
+package io.mateusnere.swplanetapi.web;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/*
+ * POST /planets com o group commit ligado sobre um H2 em memória. O max-delay longo faz as requisições
+ * simultâneas caírem nos mesmos lotes
+ * */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:groupcommit;DB_CLOSE_DELAY=-1",
+        "planets.group-commit.enabled=true",
+        "planets.group-commit.max-batch=10",
+        "planets.group-commit.max-delay=200ms"
+})
+@AutoConfigureMockMvc
+@Sql(scripts = {"/remove_planets.sql"}, executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+public class GroupCommitTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void createPlanets_Concurrently_GroupsCommitsAndReportsEachResult() throws Exception {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 19; i++) {
+            names.add("Planet " + i);
+        }
+        names.add("Planet 0");
+
+        List<MvcResult> results;
+        try (ExecutorService executor = Executors.newFixedThreadPool(names.size())) {
+            List<CompletableFuture<MvcResult>> requests = names.stream()
+                    .map(name -> CompletableFuture.supplyAsync(() -> create(name), executor))
+                    .toList();
+            results = requests.stream().map(CompletableFuture::join).toList();
+        }
+
+        List<String> created = results.stream().filter(result -> result.getResponse().getStatus() == 201)
+                .map(GroupCommitTest::contentOf).toList();
+        assertThat(created).hasSize(19).doesNotHaveDuplicates();
+        assertThat(results).filteredOn(result -> result.getResponse().getStatus() == 409).hasSize(1);
+        // 20 criações em bem menos transações que uma por requisição
+        assertThat(meterRegistry.get("planets.group-commit.batch.size").summary().count()).isLessThan(names.size());
+        assertThat(meterRegistry.get("planets.group-commit.batch.size").summary().totalAmount()).isEqualTo(names.size());
+    }
+
+    private MvcResult create(String name) {
+        try {
+            return mockMvc.perform(post("/planets")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"name\": \"" + name + "\", \"climate\": \"arid\", \"terrain\": \"desert\"}"))
+                    .andReturn();
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String contentOf(MvcResult result) {
+        try {
+            return result.getResponse().getContentAsString();
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -2,7 +2,16 @@ package io.mateusnere.swplanetapi.web;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.mateusnere.swplanetapi.domain.Planet;
+import io.mateusnere.swplanetapi.domain.PlanetBatchResult;
+import io.mateusnere.swplanetapi.domain.PlanetJsonCache;
+import io.mateusnere.swplanetapi.domain.PlanetLookup;
+import io.mateusnere.swplanetapi.domain.PlanetPage;
 import io.mateusnere.swplanetapi.domain.PlanetService;
+import io.mateusnere.swplanetapi.domain.PlanetUpsert;
+import io.mateusnere.swplanetapi.domain.PlanetView;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -11,20 +20,37 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.json.JsonCompareMode;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static io.mateusnere.swplanetapi.common.PlanetConstants.INVALID_PLANET;
 import static io.mateusnere.swplanetapi.common.PlanetConstants.PLANET;
+import static io.mateusnere.swplanetapi.common.PlanetConstants.PLANET_VIEW;
+import static io.mateusnere.swplanetapi.common.PlanetConstants.TATOOINE;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -38,9 +64,21 @@ public class PlanetControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PlanetJsonCache jsonCache;
+
     @MockitoBean
     private PlanetService planetService;
 
+    // As páginas em cache sobreviveriam entre os testes, que trocam o retorno do PlanetService mockado
+    @BeforeEach
+    public void clearJsonCache() {
+        jsonCache.evictPages();
+    }
+
     @Test
     public void createPlanet_withValidData_ReturnsCreated() throws Exception {
        when(planetService.create(PLANET)).thenReturn(PLANET);
@@ -71,22 +109,84 @@ public class PlanetControllerTest {
     @Test
     public void createPlanet_withExistingPlanetData_ReturnsConflict() throws Exception {
         when(planetService.create(any())).thenThrow(DataIntegrityViolationException.class);
+        Counter conflicts = meterRegistry.get("planets.outcome").tags("operation", "create", "outcome", "conflict").counter();
+        double before = conflicts.count();
 
         mockMvc.perform(
                 post("/planets")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(PLANET))
         ).andExpect(status().isConflict());
+
+        assertThat(conflicts.count()).isEqualTo(before + 1);
+    }
+
+    @Test
+    public void createPlanets_InBatch_ReturnsResultPerItem() throws Exception {
+        when(planetService.createAll(List.of(PLANET, INVALID_PLANET))).thenReturn(List.of(
+                PlanetBatchResult.created(0, PLANET),
+                PlanetBatchResult.invalid(1, INVALID_PLANET, "name must not be empty")));
+
+        mockMvc.perform(
+                post("/planets/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(PLANET, INVALID_PLANET)))
+        ).andExpect(status().isOk())
+        .andExpect(jsonPath("$.[0].status").value("CREATED"))
+        .andExpect(jsonPath("$.[1].status").value("INVALID"));
+    }
+
+    @Test
+    public void createPlanets_InBatchFromNdjson_ReturnsResultPerItem() throws Exception {
+        when(planetService.createAll(List.of(PLANET, PLANET))).thenReturn(List.of(
+                PlanetBatchResult.created(0, PLANET),
+                PlanetBatchResult.conflict(1, PLANET)));
+
+        String planetJson = objectMapper.writeValueAsString(PLANET);
+        mockMvc.perform(
+                post("/planets/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content(planetJson + "\n" + planetJson + "\n")
+        ).andExpect(status().isOk())
+        .andExpect(jsonPath("$.[0].status").value("CREATED"))
+        .andExpect(jsonPath("$.[1].status").value("CONFLICT"));
     }
 
     @Test
     public void getPlanet_ByExistingId_ReturnsPlanet() throws Exception {
-        when(planetService.getById(1L)).thenReturn(Optional.of(PLANET));
+        when(planetService.getById(1L)).thenReturn(Optional.of(PlanetView.of(TATOOINE)));
 
         mockMvc.perform(
                 get("/planets/1")
         ).andExpect(status().isOk())
-        .andExpect(jsonPath("$").value(PLANET));
+        .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+        .andExpect(content().json(objectMapper.writeValueAsString(TATOOINE), JsonCompareMode.STRICT));
+    }
+
+    @Test
+    public void getPlanet_ByExistingIdWithMatchingETag_ReturnsNotModified() throws Exception {
+        PlanetView planet = new PlanetView(1L, "Tatooine", "arid", "desert", 0L, null);
+        when(planetService.getById(1L)).thenReturn(Optional.of(planet));
+
+        String etag = mockMvc.perform(get("/planets/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"1-0\""))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(
+                get("/planets/1").header(HttpHeaders.IF_NONE_MATCH, etag)
+        ).andExpect(status().isNotModified())
+        .andExpect(content().string(""));
+    }
+
+    @Test
+    public void getPlanet_WithoutDatabaseConnection_ReturnsServiceUnavailable() throws Exception {
+        when(planetService.getById(1L)).thenThrow(new CannotCreateTransactionException("Connection is not available"));
+
+        mockMvc.perform(
+                get("/planets/1")
+        ).andExpect(status().isServiceUnavailable())
+        .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
     }
 
     @Test
@@ -100,12 +200,12 @@ public class PlanetControllerTest {
 
     @Test
     public void getPlanet_ByExistingName_ReturnsPlanet() throws Exception {
-        when(planetService.getByName(PLANET.getName())).thenReturn(Optional.of(PLANET));
+        when(planetService.getByName(TATOOINE.getName())).thenReturn(Optional.of(PlanetView.of(TATOOINE)));
 
         mockMvc.perform(
-                get("/planets/name/Tatooine-1")
+                get("/planets/name/Tatooine")
         ).andExpect(status().isOk())
-        .andExpect(jsonPath("$").value(PLANET));
+        .andExpect(jsonPath("$").value(TATOOINE));
     }
 
     @Test
@@ -117,9 +217,47 @@ public class PlanetControllerTest {
         ).andExpect(status().isNotFound());
     }
 
+    @Test
+    public void getPlanets_ByIds_ReturnsFoundAndMissingIds() throws Exception {
+        when(planetService.lookup(List.of(1L, 99L), List.of()))
+                .thenReturn(new PlanetLookup(List.of(PlanetView.of(TATOOINE)), List.of(99L), List.of()));
+
+        mockMvc.perform(
+                get("/planets").param("ids", "1,99")
+        ).andExpect(status().isOk())
+        .andExpect(jsonPath("$.planets[0]").value(TATOOINE))
+        .andExpect(jsonPath("$.missingIds[0]").value(99));
+    }
+
+    @Test
+    public void lookupPlanets_ByIdsAndNames_ReturnsLookup() throws Exception {
+        when(planetService.lookup(List.of(1L), List.of("Marte")))
+                .thenReturn(new PlanetLookup(List.of(PlanetView.of(TATOOINE)), List.of(), List.of("Marte")));
+
+        mockMvc.perform(
+                post("/planets/lookup").content("{\"ids\": [1], \"names\": [\"Marte\", \" \"]}").contentType(MediaType.APPLICATION_JSON)
+        ).andExpect(status().isOk())
+        .andExpect(jsonPath("$.planets[0]").value(TATOOINE))
+        .andExpect(jsonPath("$.missingNames[0]").value("Marte"));
+    }
+
+    @Test
+    public void lookupPlanets_WithTooManyKeys_ReturnsBadRequest() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= PlanetService.MAX_LOOKUP_KEYS + 1; id++) {
+            ids.add(id);
+        }
+
+        mockMvc.perform(
+                post("/planets/lookup").content(objectMapper.writeValueAsString(new PlanetLookupRequest(ids, null)))
+                        .contentType(MediaType.APPLICATION_JSON)
+        ).andExpect(status().isBadRequest());
+        verify(planetService, times(0)).lookup(any(), any());
+    }
+
     @Test
     public void getPlanets_ByNoFilter_ReturnsListOfPlanets() throws Exception {
-        when(planetService.list(null, null)).thenReturn(List.of(PLANET));
+        when(planetService.list(null, null, null, 100)).thenReturn(new PlanetPage(List.of(PLANET_VIEW), null));
 
         mockMvc.perform(
                 get("/planets")
@@ -129,7 +267,7 @@ public class PlanetControllerTest {
 
     @Test
     public void getPlanets_ByExistingClimateFilter_ReturnsListOfPlanets() throws Exception {
-        when(planetService.list(PLANET.getClimate(), null)).thenReturn(List.of(PLANET));
+        when(planetService.list(PLANET.getClimate(), null, null, 100)).thenReturn(new PlanetPage(List.of(PLANET_VIEW), null));
 
         mockMvc.perform(
                 get("/planets?climate=" + PLANET.getClimate())
@@ -139,7 +277,7 @@ public class PlanetControllerTest {
 
     @Test
     public void getPlanets_ByExistingTerrainFilter_ReturnsListOfPlanets() throws Exception {
-        when(planetService.list(null, PLANET.getTerrain())).thenReturn(List.of(PLANET));
+        when(planetService.list(null, PLANET.getTerrain(), null, 100)).thenReturn(new PlanetPage(List.of(PLANET_VIEW), null));
 
         mockMvc.perform(
                 get("/planets?terrain=" + PLANET.getTerrain())
@@ -149,7 +287,7 @@ public class PlanetControllerTest {
 
     @Test
     public void getPlanets_ByExistingClimateAndTerrainFilter_ReturnsListOfPlanets() throws Exception {
-        when(planetService.list(PLANET.getClimate(), PLANET.getTerrain())).thenReturn(List.of(PLANET));
+        when(planetService.list(PLANET.getClimate(), PLANET.getTerrain(), null, 100)).thenReturn(new PlanetPage(List.of(PLANET_VIEW), null));
 
         mockMvc.perform(
                 get("/planets?climate=" + PLANET.getClimate() + "&terrain=" + PLANET.getTerrain())
@@ -159,9 +297,9 @@ public class PlanetControllerTest {
 
     @Test
     public void getPlanets_ByUnexistingFilter_ReturnsEmptyList() throws Exception {
-        when(planetService.list("unexisting", null)).thenReturn(List.of());
-        when(planetService.list(null, "unexisting")).thenReturn(List.of());
-        when(planetService.list("unexisting", "unexisting")).thenReturn(List.of());
+        when(planetService.list("unexisting", null, null, 100)).thenReturn(new PlanetPage(List.of(), null));
+        when(planetService.list(null, "unexisting", null, 100)).thenReturn(new PlanetPage(List.of(), null));
+        when(planetService.list("unexisting", "unexisting", null, 100)).thenReturn(new PlanetPage(List.of(), null));
 
         mockMvc.perform(
                 get("/planets?climate=unexisting")
@@ -179,6 +317,136 @@ public class PlanetControllerTest {
         .andExpect(jsonPath("$").isEmpty());
     }
 
+    @Test
+    public void getPlanets_WithNextPage_ReturnsCursorHeader() throws Exception {
+        when(planetService.list(null, null, null, 1)).thenReturn(new PlanetPage(List.of(PLANET_VIEW), 1L));
+
+        mockMvc.perform(
+                get("/planets?limit=1")
+        ).andExpect(status().isOk())
+        .andExpect(header().string(PlanetController.NEXT_CURSOR_HEADER, PlanetCursor.encode(1L)))
+        .andExpect(jsonPath("$.[0]").value(PLANET));
+    }
+
+    @Test
+    public void getPlanets_AfterCursor_ReturnsNextPage() throws Exception {
+        when(planetService.list(null, null, 1L, 1)).thenReturn(new PlanetPage(List.of(PLANET_VIEW), null));
+
+        mockMvc.perform(
+                get("/planets?limit=1&after=" + PlanetCursor.encode(1L))
+        ).andExpect(status().isOk())
+        .andExpect(header().doesNotExist(PlanetController.NEXT_CURSOR_HEADER))
+        .andExpect(jsonPath("$.[0]").value(PLANET));
+    }
+
+    @Test
+    public void getPlanets_WithTotal_ReturnsTotalCountHeader() throws Exception {
+        when(planetService.list(null, null, null, 100)).thenReturn(new PlanetPage(List.of(PLANET_VIEW), null));
+        when(planetService.count(null, null)).thenReturn(1L);
+
+        mockMvc.perform(
+                get("/planets?total=true")
+        ).andExpect(status().isOk())
+        .andExpect(header().string(PlanetController.TOTAL_COUNT_HEADER, "1"));
+    }
+
+    @Test
+    public void getPlanets_WithCurrentCollectionETag_ReturnsNotModifiedWithoutQuerying() throws Exception {
+        when(planetService.list(null, null, null, 100)).thenReturn(new PlanetPage(List.of(PLANET_VIEW), null));
+
+        String etag = mockMvc.perform(get("/planets"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(
+                get("/planets").header(HttpHeaders.IF_NONE_MATCH, etag)
+        ).andExpect(status().isNotModified());
+        verify(planetService, times(1)).list(null, null, null, 100);
+    }
+
+    // Uma escrita no mesmo segundo do If-Modified-Since não pode virar 304
+    @Test
+    public void getPlanets_WithOnlyIfModifiedSince_ReturnsPage() throws Exception {
+        when(planetService.list(null, null, null, 100)).thenReturn(new PlanetPage(List.of(PLANET_VIEW), null));
+
+        mockMvc.perform(
+                get("/planets").header(HttpHeaders.IF_MODIFIED_SINCE, "Fri, 31 Dec 2100 23:59:59 GMT")
+        ).andExpect(status().isOk())
+        .andExpect(header().doesNotExist(HttpHeaders.LAST_MODIFIED))
+        .andExpect(header().exists(HttpHeaders.ETAG));
+    }
+
+    // Uma escrita no mesmo segundo do If-Modified-Since não pode virar 304
+    @Test
+    public void getPlanetById_WithOnlyIfModifiedSince_ReturnsPlanet() throws Exception {
+        PlanetView planet = new PlanetView(1L, "Tatooine", "arid", "desert", 0L, Instant.parse("2100-12-31T23:59:59.500Z"));
+        when(planetService.getById(1L)).thenReturn(Optional.of(planet));
+
+        mockMvc.perform(
+                get("/planets/1").header(HttpHeaders.IF_MODIFIED_SINCE, "Fri, 31 Dec 2100 23:59:59 GMT")
+        ).andExpect(status().isOk())
+        .andExpect(header().doesNotExist(HttpHeaders.LAST_MODIFIED))
+        .andExpect(header().exists(HttpHeaders.ETAG));
+    }
+
+    @Test
+    public void getPlanets_WithInvalidCursor_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(
+                get("/planets?after=invalid!")
+        ).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void streamPlanets_ReturnsNewlineDelimitedJson() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<PlanetView> consumer = invocation.getArgument(2);
+            consumer.accept(PLANET_VIEW);
+            consumer.accept(PLANET_VIEW);
+            return null;
+        }).when(planetService).stream(eq(null), eq(PLANET.getTerrain()), any());
+
+        MvcResult result = mockMvc.perform(
+                get("/planets/stream?terrain=" + PLANET.getTerrain())
+        ).andExpect(request().asyncStarted()).andReturn();
+
+        String planetJson = objectMapper.writeValueAsString(PLANET);
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(planetJson + "\n" + planetJson + "\n"));
+    }
+
+    @Test
+    public void upsertPlanet_ByNewName_ReturnsCreated() throws Exception {
+        when(planetService.upsert(any(Planet.class))).thenAnswer(invocation -> new PlanetUpsert(invocation.getArgument(0), true));
+
+        mockMvc.perform(
+                put("/planets/name/Naboo").content("{\"climate\": \"temperate\", \"terrain\": \"grassy hills\"}")
+                        .contentType(MediaType.APPLICATION_JSON)
+        ).andExpect(status().isCreated())
+        .andExpect(jsonPath("$.name").value("Naboo"))
+        .andExpect(jsonPath("$.climate").value("temperate"));
+    }
+
+    @Test
+    public void upsertPlanet_ByExistingName_ReturnsOk() throws Exception {
+        when(planetService.upsert(any(Planet.class))).thenReturn(new PlanetUpsert(TATOOINE, false));
+
+        mockMvc.perform(
+                put("/planets/name/Tatooine").content("{\"climate\": \"Arid\", \"terrain\": \"Desert\"}")
+                        .contentType(MediaType.APPLICATION_JSON)
+        ).andExpect(status().isOk())
+        .andExpect(jsonPath("$").value(TATOOINE));
+    }
+
+    @Test
+    public void upsertPlanet_WithInvalidData_ReturnsUnprocessableEntity() throws Exception {
+        mockMvc.perform(
+                put("/planets/name/Naboo").content("{\"climate\": \"\"}").contentType(MediaType.APPLICATION_JSON)
+        ).andExpect(status().isUnprocessableEntity());
+        verify(planetService, times(0)).upsert(any());
+    }
+
     @Test
     public void deletePlanet_ByExistingId_ReturnsNoContent() throws Exception {
         mockMvc.perform(
@@ -0,0 +1,148 @@
+package io.mateusnere.swplanetapi.web;
+
+import io.mateusnere.swplanetapi.domain.Planet;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+import java.util.Objects;
+
+import static io.mateusnere.swplanetapi.common.PlanetConstants.INVALID_PLANET;
+import static io.mateusnere.swplanetapi.common.PlanetConstants.PLANET;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * Sobe a aplicação no perfil reativo com o JPA e o R2DBC apontando para o mesmo banco H2 em memória
+ * */
+@ActiveProfiles("reactive")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:reactivedb;DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.url=r2dbc:h2:mem:///reactivedb;DB_CLOSE_DELAY=-1"
+})
+@Sql(scripts = {"/remove_planets.sql"}, executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+public class ReactivePlanetControllerTest {
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Test
+    public void createPlanet_WithValidData_ReturnsCreatedAndIsFoundByIdAndName() {
+        Planet created = createPlanet(PLANET);
+
+        assertThat(created.getId()).isNotNull();
+        assertThat(created.getName()).isEqualTo(PLANET.getName());
+
+        webTestClient.get().uri("/planets/{id}", created.getId())
+                .exchange().expectStatus().isOk()
+                .expectHeader().exists(HttpHeaders.ETAG)
+                .expectBody(Planet.class).isEqualTo(new Planet(created.getId(), PLANET.getName(), PLANET.getClimate(), PLANET.getTerrain()));
+        webTestClient.get().uri("/planets/name/{name}", PLANET.getName())
+                .exchange().expectStatus().isOk()
+                .expectBody().jsonPath("$.id").isEqualTo(created.getId());
+    }
+
+    @Test
+    public void createPlanet_WithInvalidData_ReturnsUnprocessableEntity() {
+        webTestClient.post().uri("/planets").bodyValue(INVALID_PLANET)
+                .exchange().expectStatus().isEqualTo(422);
+    }
+
+    @Test
+    public void createPlanet_WithExistingName_ReturnsConflict() {
+        createPlanet(PLANET);
+
+        webTestClient.post().uri("/planets").bodyValue(PLANET)
+                .exchange().expectStatus().isEqualTo(409);
+    }
+
+    @Test
+    public void getPlanet_ByUnexistingId_ReturnsNotFound() {
+        webTestClient.get().uri("/planets/{id}", 999)
+                .exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    public void getPlanet_WithMatchingETag_ReturnsNotModified() {
+        Planet created = createPlanet(PLANET);
+        String etag = webTestClient.get().uri("/planets/{id}", created.getId())
+                .exchange().returnResult(Planet.class).getResponseHeaders().getETag();
+
+        assertThat(etag).isEqualTo("W/\"" + created.getId() + "-0\"");
+        webTestClient.get().uri("/planets/{id}", created.getId()).header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange().expectStatus().isNotModified();
+    }
+
+    @Test
+    public void listPlanets_ByFilterAndPage_ReturnsPlanetsWithCursorAndTotal() {
+        createPlanet(new Planet("Alderaan", "temperate", "grasslands, mountains"));
+        createPlanet(new Planet("Yavin IV", "temperate, tropical", "jungle, rainforest"));
+        createPlanet(new Planet("Tatooine", "arid", "desert"));
+
+        var firstPage = webTestClient.get().uri("/planets?climate=temperate&limit=1&total=true")
+                .exchange().expectStatus().isOk()
+                .expectHeader().valueEquals(PlanetController.TOTAL_COUNT_HEADER, "2")
+                .expectBodyList(Planet.class).hasSize(1)
+                .returnResult();
+        assertThat(Objects.requireNonNull(firstPage.getResponseBody()).getFirst().getName()).isEqualTo("Alderaan");
+
+        String next = firstPage.getResponseHeaders().getFirst(PlanetController.NEXT_CURSOR_HEADER);
+        List<Planet> secondPage = webTestClient.get().uri("/planets?climate=temperate&limit=1&after=" + next)
+                .exchange().expectStatus().isOk()
+                .expectHeader().doesNotExist(PlanetController.NEXT_CURSOR_HEADER)
+                .expectBodyList(Planet.class).returnResult().getResponseBody();
+        assertThat(secondPage).extracting(Planet::getName).containsExactly("Yavin IV");
+    }
+
+    @Test
+    public void listPlanets_WithInvalidCursor_ReturnsBadRequest() {
+        webTestClient.get().uri("/planets?after=!!")
+                .exchange().expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void listPlanets_WithCurrentCollectionVersion_ReturnsNotModified() {
+        createPlanet(PLANET);
+        String etag = webTestClient.get().uri("/planets")
+                .exchange().returnResult(Planet.class).getResponseHeaders().getETag();
+
+        webTestClient.get().uri("/planets").header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange().expectStatus().isNotModified();
+    }
+
+    @Test
+    public void streamPlanets_ReturnsOnePlanetPerLine() {
+        createPlanet(new Planet("Alderaan", "temperate", "grasslands, mountains"));
+        createPlanet(new Planet("Tatooine", "arid", "desert"));
+
+        List<Planet> planets = webTestClient.get().uri("/planets/stream").accept(MediaType.APPLICATION_NDJSON)
+                .exchange().expectStatus().isOk()
+                .returnResult(Planet.class).getResponseBody().collectList().block();
+
+        assertThat(planets).extracting(Planet::getName).containsExactly("Alderaan", "Tatooine");
+    }
+
+    @Test
+    public void removePlanet_WithExistingId_ReturnsNoContentAndThenNotFound() {
+        Planet created = createPlanet(PLANET);
+
+        webTestClient.delete().uri("/planets/{id}", created.getId())
+                .exchange().expectStatus().isNoContent();
+        webTestClient.delete().uri("/planets/{id}", created.getId())
+                .exchange().expectStatus().isNotFound();
+        webTestClient.get().uri("/planets?climate=dry")
+                .exchange().expectStatus().isOk()
+                .expectBodyList(Planet.class).hasSize(0);
+    }
+
+    private Planet createPlanet(Planet planet) {
+        return webTestClient.post().uri("/planets").bodyValue(planet)
+                .exchange().expectStatus().isCreated()
+                .expectBody(Planet.class).returnResult().getResponseBody();
+    }
+}
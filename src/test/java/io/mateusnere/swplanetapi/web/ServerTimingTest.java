@@ -0,0 +1,98 @@
+package io.mateusnere.swplanetapi.web;
+
+import io.mateusnere.swplanetapi.domain.RequestTiming;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.hamcrest.Matchers.matchesPattern;
+
+/*
+ * Sobe a aplicação com o Server-Timing ligado sobre um H2 em memória
+ * */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:servertiming;DB_CLOSE_DELAY=-1",
+        "planets.server-timing.enabled=true"
+})
+@AutoConfigureMockMvc
+@Sql(scripts = {"/import_planets.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(scripts = {"/remove_planets.sql"}, executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+public class ServerTimingTest {
+
+    private static final String SERVER_TIMING =
+            "db;dur=\\d+\\.\\d{3}, mapping;dur=\\d+\\.\\d{3}, serialization;dur=\\d+\\.\\d{3}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void listPlanets_ReturnsServerTimingAndSameBody() throws Exception {
+        mockMvc.perform(get("/planets").param("climate", "temperate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Server-Timing", matchesPattern(SERVER_TIMING)))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].name").value("Alderaan"))
+                .andExpect(header().string("Server-Timing", matchesPattern("db;dur=(?!0\\.000).*")));
+    }
+
+    @Test
+    public void getPlanet_ByUnexistingId_ReturnsServerTimingWithoutBody() throws Exception {
+        mockMvc.perform(get("/planets/999"))
+                .andExpect(status().isNotFound())
+                .andExpect(header().string("Server-Timing", matchesPattern(SERVER_TIMING)));
+    }
+
+    @Test
+    public void listPlanets_RecordsOneJfrEventPerPhase() throws Exception {
+        Path dump = Files.createTempFile("server-timing", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(RequestPhaseEvent.class);
+            recording.start();
+            mockMvc.perform(get("/planets")).andExpect(status().isOk());
+            recording.stop();
+            recording.dump(dump);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(dump).stream()
+                    .filter(event -> event.getEventType().getName().equals("io.mateusnere.swplanetapi.RequestPhase"))
+                    .toList();
+            assertThat(events).extracting(event -> event.getString("phase"))
+                    .containsExactly("db", "mapping", "serialization");
+            assertThat(events).allSatisfy(event -> assertThat(event.getString("uri")).isEqualTo("/planets"));
+            assertThat(events.getFirst().getDuration("time")).isPositive();
+        } finally {
+            Files.deleteIfExists(dump);
+        }
+    }
+
+    // Upsert, lotes e termos vão pelo JdbcTemplate, sem os eventos de sessão do Hibernate
+    @Test
+    public void jdbcTemplate_CountsAsDbTime() {
+        RequestTiming timing = RequestTiming.start();
+        try {
+            jdbcTemplate.queryForObject("SELECT COUNT(*) FROM planets", Long.class);
+
+            assertThat(timing.nanos(RequestTiming.Phase.DB)).isPositive();
+        } finally {
+            RequestTiming.clear();
+        }
+    }
+}
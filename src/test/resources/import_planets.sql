@@ -1,3 +1,6 @@
 INSERT INTO planets (id, name, climate, terrain) VALUES(1, 'Tatooine', 'Arid', 'Desert');
 INSERT INTO planets (id, name, climate, terrain) VALUES(2, 'Alderaan', 'temperate', 'grasslands, mountains');
-INSERT INTO planets (id, name, climate, terrain) VALUES(3, 'Yavin IV', 'temperate, tropical', 'jungle, rainforest');
\ No newline at end of file
+INSERT INTO planets (id, name, climate, terrain) VALUES(3, 'Yavin IV', 'temperate, tropical', 'jungle, rainforest');
+INSERT INTO planet_tokens (attribute, token, planet_id) VALUES('CLIMATE', 'arid', 1), ('TERRAIN', 'desert', 1);
+INSERT INTO planet_tokens (attribute, token, planet_id) VALUES('CLIMATE', 'temperate', 2), ('TERRAIN', 'grasslands', 2), ('TERRAIN', 'mountains', 2);
+INSERT INTO planet_tokens (attribute, token, planet_id) VALUES('CLIMATE', 'temperate', 3), ('CLIMATE', 'tropical', 3), ('TERRAIN', 'jungle', 3), ('TERRAIN', 'rainforest', 3);
\ No newline at end of file
@@ -1 +1,3 @@
-TRUNCATE TABLE planets;
\ No newline at end of file
+TRUNCATE TABLE planets;
+TRUNCATE TABLE planet_tokens;
+TRUNCATE TABLE planet_changes;